@@ -0,0 +1,34 @@
+package org.example.benchmark;
+
+import org.example.domain.graph.ActivationCondition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivationConditionBenchmark {
+    private final ActivationCondition range = ActivationCondition.compile("18:65");
+    private final ActivationCondition discrete = ActivationCondition.compile("[1,2,3,4,5,6,7,8]");
+    private final ActivationCondition exact = ActivationCondition.compile("value");
+
+    @Param({"25", "250", "not-a-number"})
+    private String value;
+
+    @Benchmark
+    public void match(Blackhole blackhole) {
+        blackhole.consume(range.matches(value));
+        blackhole.consume(discrete.matches(value));
+        blackhole.consume(exact.matches(value));
+    }
+
+    @Benchmark
+    public ActivationCondition compile() {
+        return ActivationCondition.compile("18:65");
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.benchmark;
+
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение скомпилированного графа из строк, прочитанных из базы данных.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBuildBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int features;
+
+    private SyntheticKnowledgeBase knowledgeBase;
+
+    @Setup
+    public void setUp() {
+        knowledgeBase = SyntheticKnowledgeBase.generate(SyntheticKnowledgeBase.Spec.of(features, features / 2, 3, 3));
+    }
+
+    @Benchmark
+    public KnowledgeBaseGraph build() {
+        return knowledgeBase.toGraph();
+    }
+}
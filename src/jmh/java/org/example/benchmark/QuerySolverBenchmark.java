@@ -0,0 +1,83 @@
+package org.example.benchmark;
+
+import org.example.domain.DTO.NodeDTO;
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.example.service.QuerySolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость решения на синтетической базе знаний. Шаги 7 и 8 оцениваются
+ * как разница между {@code propagation} и {@code differentiation}/{@code minimization}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuerySolverBenchmark {
+    private static final int CASES = 64;
+
+    @Param({"100", "1000", "10000"})
+    private int features;
+
+    @Param({"3"})
+    private int depth;
+
+    @Param({"3"})
+    private int fanIn;
+
+    private final QuerySolver querySolver = new QuerySolver();
+    private KnowledgeBaseGraph graph;
+    private List<List<RequestDTO.Parameter>> cases;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            next = (next + 1) % CASES;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        SyntheticKnowledgeBase knowledgeBase = SyntheticKnowledgeBase.generate(
+                SyntheticKnowledgeBase.Spec.of(features, features / 2, depth, fanIn));
+        graph = knowledgeBase.toGraph();
+        cases = knowledgeBase.cases(CASES, 0.5, 0.6);
+    }
+
+    @Benchmark
+    public List<NodeDTO> propagation(Cursor cursor) {
+        return querySolver.solve(graph, cases.get(cursor.next()), false, false);
+    }
+
+    @Benchmark
+    public List<NodeDTO> differentiation(Cursor cursor) {
+        return querySolver.solve(graph, cases.get(cursor.next()), true, false);
+    }
+
+    @Benchmark
+    public List<NodeDTO> minimization(Cursor cursor) {
+        return querySolver.solve(graph, cases.get(cursor.next()), false, true);
+    }
+
+    @Benchmark
+    public List<NodeDTO> fullSolve(Cursor cursor) {
+        return querySolver.solve(graph, cases.get(cursor.next()), true, true);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<NodeDTO> concurrentFullSolve(Cursor cursor) {
+        return querySolver.solve(graph, cases.get(cursor.next()), true, true);
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.benchmark;
+
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.example.domain.types.ConnectionType;
+import org.example.domain.types.NodeType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Генератор синтетической базы знаний для бенчмарков.
+ * Признаки связаны с гипотезами через {@code depth} слоёв узлов AND/OR, у каждого узла
+ * {@code fanIn} входов из предыдущего слоя. Типы связей выбираются с весами {@code connectionMix}
+ * в порядке {@link ConnectionType#values()}.
+ */
+public final class SyntheticKnowledgeBase {
+    private static final String[] DISCRETE_VALUES = {"1", "2", "3", "4", "5", "6", "7", "8"};
+
+    private final Spec spec;
+    private final Random random;
+    private final List<Long> rowSources = new ArrayList<>();
+    private final List<Long> rowTargets = new ArrayList<>();
+    private final List<ConnectionType> rowTypes = new ArrayList<>();
+    private final String[] conditions;
+
+    public record Spec(int features, int hypotheses, int depth, int auxiliaryPerLevel, int fanIn,
+                       double andShare, double[] connectionMix, long seed) {
+
+        public static Spec of(int features, int hypotheses, int depth, int fanIn) {
+            return new Spec(features, hypotheses, depth, Math.max(1, features / 2), fanIn,
+                    0.5, new double[]{0.3, 0.5, 0.1, 0.1}, 42);
+        }
+    }
+
+    private SyntheticKnowledgeBase(Spec spec) {
+        this.spec = spec;
+        this.random = new Random(spec.seed());
+        this.conditions = new String[spec.features()];
+    }
+
+    public static SyntheticKnowledgeBase generate(Spec spec) {
+        SyntheticKnowledgeBase knowledgeBase = new SyntheticKnowledgeBase(spec);
+        knowledgeBase.generateConnections();
+        return knowledgeBase;
+    }
+
+    public int nodeCount() {
+        return spec.features() + spec.depth() * spec.auxiliaryPerLevel() + spec.hypotheses();
+    }
+
+    public int connectionCount() {
+        return rowSources.size();
+    }
+
+    public KnowledgeBaseGraph toGraph() {
+        KnowledgeBaseGraph.Builder builder = KnowledgeBaseGraph.builder(1L);
+        for (int feature = 0; feature < spec.features(); feature++) {
+            builder.addNode(featureId(feature), "feature-" + feature, NodeType.FEATURE,
+                    "attribute-" + feature % 16, "", conditions[feature]);
+        }
+        for (int level = 0; level < spec.depth(); level++) {
+            for (int node = 0; node < spec.auxiliaryPerLevel(); node++) {
+                long id = auxiliaryId(level, node);
+                builder.addNode(id, "auxiliary-" + id, id % 100 < spec.andShare() * 100 ? NodeType.AND : NodeType.OR);
+            }
+        }
+        for (int hypothesis = 0; hypothesis < spec.hypotheses(); hypothesis++) {
+            builder.addNode(hypothesisId(hypothesis), "hypothesis-" + hypothesis, NodeType.HYPOTHESIS);
+        }
+        for (int i = 0; i < rowSources.size(); i++) {
+            builder.addConnection(rowSources.get(i), rowTargets.get(i), rowTypes.get(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Случаи для решения: каждый признак наблюдается с вероятностью {@code observedShare},
+     * значение удовлетворяет условию с вероятностью {@code matchShare}.
+     */
+    public List<List<RequestDTO.Parameter>> cases(int count, double observedShare, double matchShare) {
+        Random caseRandom = new Random(spec.seed() + 1);
+        List<List<RequestDTO.Parameter>> cases = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<RequestDTO.Parameter> parameters = new ArrayList<>();
+            for (int feature = 0; feature < spec.features(); feature++) {
+                if (caseRandom.nextDouble() < observedShare) {
+                    boolean match = caseRandom.nextDouble() < matchShare;
+                    parameters.add(new RequestDTO.Parameter(featureId(feature), value(feature, match), null));
+                }
+            }
+            cases.add(parameters);
+        }
+        return cases;
+    }
+
+    public String condition(int feature) {
+        return conditions[feature];
+    }
+
+    public String value(int feature, boolean match) {
+        return switch (feature % 3) {
+            case 0 -> match ? "25" : "250";
+            case 1 -> match ? DISCRETE_VALUES[feature % 4] : "9";
+            default -> match ? "value-" + feature : "other";
+        };
+    }
+
+    private void generateConnections() {
+        for (int feature = 0; feature < spec.features(); feature++) {
+            conditions[feature] = switch (feature % 3) {
+                case 0 -> "18:65";
+                case 1 -> "[" + String.join(",", List.of(DISCRETE_VALUES).subList(0, 4)) + "]";
+                default -> "value-" + feature;
+            };
+        }
+
+        for (int level = 0; level < spec.depth(); level++) {
+            for (int node = 0; node < spec.auxiliaryPerLevel(); node++) {
+                for (int input = 0; input < spec.fanIn(); input++) {
+                    addConnection(level == 0 ? randomFeature() : auxiliaryId(level - 1, random.nextInt(spec.auxiliaryPerLevel())),
+                            auxiliaryId(level, node), propagatingType());
+                }
+            }
+        }
+
+        for (int hypothesis = 0; hypothesis < spec.hypotheses(); hypothesis++) {
+            long id = hypothesisId(hypothesis);
+            for (int input = 0; input < spec.fanIn(); input++) {
+                long source = spec.depth() == 0 || random.nextBoolean()
+                        ? randomFeature()
+                        : auxiliaryId(spec.depth() - 1, random.nextInt(spec.auxiliaryPerLevel()));
+                addConnection(source, id, randomType());
+            }
+            // Ожидаемые признаки гипотезы: RS - для расширения множества аргументов, TRA - для шага 5
+            addConnection(id, randomFeature(), ConnectionType.RS);
+            addConnection(id, randomFeature(), ConnectionType.TRA);
+        }
+    }
+
+    private void addConnection(long source, long target, ConnectionType type) {
+        rowSources.add(source);
+        rowTargets.add(target);
+        rowTypes.add(type);
+    }
+
+    private ConnectionType randomType() {
+        double[] mix = spec.connectionMix();
+        double total = 0;
+        for (double weight : mix) {
+            total += weight;
+        }
+        double point = random.nextDouble() * total;
+        for (int i = 0; i < mix.length; i++) {
+            point -= mix[i];
+            if (point < 0) {
+                return ConnectionType.values()[i];
+            }
+        }
+        return ConnectionType.RS;
+    }
+
+    private ConnectionType propagatingType() {
+        ConnectionType type = randomType();
+        return type == ConnectionType.S ? ConnectionType.RS : type;
+    }
+
+    private long randomFeature() {
+        return featureId(random.nextInt(spec.features()));
+    }
+
+    private long featureId(int feature) {
+        return feature + 1;
+    }
+
+    private long auxiliaryId(int level, int node) {
+        return spec.features() + (long) level * spec.auxiliaryPerLevel() + node + 1;
+    }
+
+    private long hypothesisId(int hypothesis) {
+        return spec.features() + (long) spec.depth() * spec.auxiliaryPerLevel() + hypothesis + 1;
+    }
+}
@@ -1,11 +1,22 @@
 package org.example;
 
+import org.example.service.KnowledgeBaseWarmUpService;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class QuerySolverApplication {
     public static void main(String[] args) {
         SpringApplication.run(QuerySolverApplication.class, args);
     }
-}
\ No newline at end of file
+
+    // Прогрев выполняется до ApplicationReadyEvent, поэтому readiness-проба сообщает о готовности только после него
+    @Bean
+    public ApplicationRunner warmUp(KnowledgeBaseWarmUpService knowledgeBaseWarmUpService) {
+        return args -> knowledgeBaseWarmUpService.warmUp();
+    }
+}
@@ -1,46 +1,163 @@
 package org.example.api;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import org.example.domain.DTO.*;
 import org.example.service.*;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;  
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/knowledge-base")
 @AllArgsConstructor
 public class QueryController {
-    private KnowledgeBaseService knowledgeBaseService;
-    private SectionService sectionService;
-    private NodeService nodeService;
-    private UserService userService;
-    private QuerySolver querySolver;
+    private AccessControlService accessControlService;
+    private SolveService solveService;
+    private SolveSessionService solveSessionService;
+    private KnowledgeBaseTransferService knowledgeBaseTransferService;
 
     @GetMapping(value = "/solve")
-    public ResponseEntity<List<AnswerDto>> solve(@RequestBody RequestDTO request) {
-        if (!checkAccess(request.getUserId(), request.getKbId())) {
+    public ResponseEntity<?> solve(@RequestBody RequestDTO request,
+                                   @RequestParam(defaultValue = "false") boolean compact,
+                                   @RequestParam(defaultValue = "0") int questions) {
+        if (!accessControlService.hasAccess(request.getUserId(), request.getKbId())) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
         }
+        // Объяснение, вопросы и компактный ответ - разные форматы ответа, выбрать можно только один
+        if ((request.isExplain() ? 1 : 0) + (questions > 0 ? 1 : 0) + (compact ? 1 : 0) > 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        if (request.isExplain()) {
+            return ResponseEntity.ok(solveService.explain(request));
+        }
+        if (questions > 0) {
+            return ResponseEntity.ok(solveService.solveWithQuestions(request, questions));
+        }
+        if (compact) {
+            return ResponseEntity.ok(solveService.solveCompact(request));
+        }
+        return ResponseEntity.ok(solveService.solve(request));
+    }
+
+    @PostMapping(value = "/solve/batch")
+    public ResponseEntity<List<List<AnswerDto>>> solveBatch(@RequestBody BatchRequestDTO request) {
+        if (!accessControlService.hasAccess(request.getUserId(), request.getKbId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+
+        return ResponseEntity.ok(solveService.solveBatch(request));
+    }
+
+    @PostMapping(value = "/solve/stream", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public void solveStream(@RequestParam Long userId,
+                            @RequestParam Long kbId,
+                            @RequestParam(defaultValue = "false") boolean hypothesesSetDifferentiationNeeded,
+                            @RequestParam(defaultValue = "false") boolean hypothesesSetMinimizationNeeded,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        if (!accessControlService.hasAccess(userId, kbId)) {
+            response.sendError(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+
+        response.setContentType("application/x-ndjson");
+        solveService.solveStream(kbId, hypothesesSetDifferentiationNeeded, hypothesesSetMinimizationNeeded,
+                request.getInputStream(), response.getOutputStream());
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<Long> importKnowledgeBase(@RequestParam Long userId, HttpServletRequest request) throws IOException {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(knowledgeBaseTransferService.importKnowledgeBase(userId, request.getInputStream()));
+        } catch (IllegalArgumentException | JsonProcessingException | DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @GetMapping(value = "/{kbId}/export", produces = "application/x-ndjson")
+    public void exportKnowledgeBase(@PathVariable Long kbId, @RequestParam Long userId,
+                                    HttpServletResponse response) throws IOException {
+        if (!accessControlService.hasAccess(userId, kbId)) {
+            response.sendError(HttpStatus.FORBIDDEN.value());
+            return;
+        }
 
-        List<NodeDTO> solutions = querySolver.solve(request, getAllNodesOfKnowledgeBase(request.getKbId()));
+        response.setContentType("application/x-ndjson");
+        if (!knowledgeBaseTransferService.exportKnowledgeBase(kbId, response.getOutputStream())) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+        }
+    }
+
+    @PostMapping(value = "/session")
+    public ResponseEntity<SessionDto> startSession(@RequestBody RequestDTO request) {
+        if (!accessControlService.hasAccess(request.getUserId(), request.getKbId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+
+        return ResponseEntity.ok(solveSessionService.start(request));
+    }
+
+    @GetMapping(value = "/session/{sessionId}")
+    public ResponseEntity<SessionDto> getSession(@PathVariable String sessionId, @RequestParam Long userId) {
+        ResponseEntity<SessionDto> denied = checkSessionAccess(sessionId, userId);
+        if (denied != null) {
+            return denied;
+        }
+
+        return sessionResponse(solveSessionService.get(sessionId, userId));
+    }
+
+    @PostMapping(value = "/session/{sessionId}/answers")
+    public ResponseEntity<SessionDto> answer(@PathVariable String sessionId, @RequestParam Long userId,
+                                             @RequestBody List<RequestDTO.Parameter> parameters) {
+        ResponseEntity<SessionDto> denied = checkSessionAccess(sessionId, userId);
+        if (denied != null) {
+            return denied;
+        }
+
+        return sessionResponse(solveSessionService.answer(sessionId, userId, parameters));
+    }
 
-        return ResponseEntity.ok(solutions.stream().map(AnswerDto::fromNodeDTO).toList());
+    @DeleteMapping(value = "/session/{sessionId}")
+    public ResponseEntity<Void> closeSession(@PathVariable String sessionId, @RequestParam Long userId) {
+        if (!solveSessionService.close(sessionId, userId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.noContent().build();
     }
 
-    private List<NodeDTO> getAllNodesOfKnowledgeBase(Long kbId) {
-        KnowledgeBaseDTO knowledgeBaseDTO = knowledgeBaseService.getKnowledgeBaseById(kbId);
-        List<SectionDTO> sectionDTOS = sectionService.getAllSectionFromKnowledgeBase(knowledgeBaseDTO);
-        return nodeService.getAllNodesFromSectionList(sectionDTOS);
+    // Сессия могла быть вытеснена или закрыта после проверки доступа
+    private ResponseEntity<SessionDto> sessionResponse(SessionDto session) {
+        if (session == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return ResponseEntity.ok(session);
     }
 
-    private boolean checkAccess(Long userId, Long kbId) {
-        UserDTO userDTO = userService.getUserById(userId);
-        return userDTO.getAvailableKb().containsKey(kbId);
+    private ResponseEntity<SessionDto> checkSessionAccess(String sessionId, Long userId) {
+        Long kbId = solveSessionService.getKbId(sessionId, userId);
+        if (kbId == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        if (!accessControlService.hasAccess(userId, kbId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+        return null;
     }
 }
@@ -0,0 +1,117 @@
+package org.example.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "solver")
+public class SolverProperties {
+    private GraphCache graphCache = new GraphCache();
+    private Stream stream = new Stream();
+    private AccessCache accessCache = new AccessCache();
+    private ResultCache resultCache = new ResultCache();
+    private Snapshot snapshot = new Snapshot();
+    private Warmup warmup = new Warmup();
+    private Executor executor = new Executor();
+    private Parallel parallel = new Parallel();
+    private Session session = new Session();
+    private Questions questions = new Questions();
+    private Transfer transfer = new Transfer();
+    private Optimizer optimizer = new Optimizer();
+
+    @Getter
+    @Setter
+    public static class GraphCache {
+        // Вес графа - число узлов вместе с исходным графом до оптимизации
+        private long maximumWeight = 5_000_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Stream {
+        private int maxInFlight = 256;
+    }
+
+    @Getter
+    @Setter
+    public static class AccessCache {
+        private long maximumSize = 100_000;
+        private Duration expireAfterWrite = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class ResultCache {
+        private long maximumWeight = 1_000_000;
+        private Duration expireAfterAccess = Duration.ofMinutes(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Snapshot {
+        private boolean enabled = true;
+        private Path directory = Path.of("snapshots");
+    }
+
+    @Getter
+    @Setter
+    public static class Warmup {
+        private boolean enabled = true;
+        // Базы знаний, которые загружаются всегда; к ним добавляются самые используемые
+        private List<Long> knowledgeBases = new ArrayList<>();
+        private int topN = 10;
+        private int syntheticSolves = 200;
+        private Path usageFile = Path.of("snapshots", "usage.properties");
+    }
+
+    @Getter
+    @Setter
+    public static class Executor {
+        // 0 - по числу ядер
+        private int threads = 0;
+        private int queueCapacity = 4096;
+    }
+
+    @Getter
+    @Setter
+    public static class Parallel {
+        // Распространение по компонентам идёт параллельно, если в затронутых компонентах не меньше узлов
+        private int minNodes = 50_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Session {
+        // Вес сессии - число узлов её графа вместе с исходным графом до оптимизации
+        private long maximumWeight = 10_000_000;
+        private Duration expireAfterAccess = Duration.ofMinutes(15);
+    }
+
+    @Getter
+    @Setter
+    public static class Questions {
+        // Сколько уточняющих вопросов возвращается в сессии
+        private int limit = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Transfer {
+        // Строк в пакете JDBC и идентификаторов в блоке, выделяемом из последовательности
+        private int batchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Optimizer {
+        private boolean enabled = true;
+    }
+}
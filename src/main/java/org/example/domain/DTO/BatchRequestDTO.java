@@ -0,0 +1,18 @@
+package org.example.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class BatchRequestDTO {
+    private final Long userId;
+    private final Long kbId;
+    private final List<List<RequestDTO.Parameter>> cases;
+    private final boolean HypothesesSetDifferentiationNeeded;
+    private final boolean HypothesesSetMinimizationNeeded;
+}
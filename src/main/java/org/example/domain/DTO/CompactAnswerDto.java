@@ -0,0 +1,35 @@
+package org.example.domain.DTO;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Ответ без повторов: каждый узел описан в {@code nodes} один раз,
+ * решения ссылаются на свои аргументы по идентификатору.
+ */
+@Getter
+@AllArgsConstructor
+public class CompactAnswerDto {
+    private List<EncodedNode> nodes;
+    private List<Solution> solutions;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Solution {
+        private Long id;
+        private List<Long> arguments;
+    }
+
+    // Заранее сериализованное описание узла, записывается в ответ как есть.
+    // Поле final: экземпляр публикуется другим потокам через общий массив без синхронизации
+    @AllArgsConstructor
+    public static class EncodedNode {
+        @JsonValue
+        @JsonRawValue
+        private final String json;
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ExplainedAnswerDto {
+    private List<AnswerDto> answers;
+    private SolveTraceDto trace;
+}
@@ -0,0 +1,96 @@
+package org.example.domain.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.domain.types.AttributeType;
+import org.example.domain.types.ConnectionType;
+import org.example.domain.types.NodeType;
+
+/**
+ * Строка формата выгрузки базы знаний (NDJSON, по записи на строку).
+ * Записи идут в порядке knowledgeBase, attribute, section, node, nodeAttribute, connection;
+ * идентификаторы действуют только внутри файла и ссылаются на записи, встреченные раньше.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class KnowledgeBaseRecordDto {
+    public static final String KNOWLEDGE_BASE = "knowledgeBase";
+    public static final String ATTRIBUTE = "attribute";
+    public static final String SECTION = "section";
+    public static final String NODE = "node";
+    public static final String NODE_ATTRIBUTE = "nodeAttribute";
+    public static final String CONNECTION = "connection";
+
+    private String type;
+    private Long id;
+    private String name;
+    private String description;
+    private AttributeType attributeType;
+    private String valueArea;
+    private Long section;
+    private NodeType nodeType;
+    private Long node;
+    private Long attribute;
+    private String activationCondition;
+    private Long source;
+    private Long target;
+    private ConnectionType connectionType;
+
+    public static KnowledgeBaseRecordDto knowledgeBase(String name, String description) {
+        KnowledgeBaseRecordDto record = new KnowledgeBaseRecordDto();
+        record.setType(KNOWLEDGE_BASE);
+        record.setName(name);
+        record.setDescription(description);
+        return record;
+    }
+
+    public static KnowledgeBaseRecordDto attribute(Long id, String name, AttributeType attributeType, String valueArea) {
+        KnowledgeBaseRecordDto record = new KnowledgeBaseRecordDto();
+        record.setType(ATTRIBUTE);
+        record.setId(id);
+        record.setName(name);
+        record.setAttributeType(attributeType);
+        record.setValueArea(valueArea);
+        return record;
+    }
+
+    public static KnowledgeBaseRecordDto section(Long id, String name) {
+        KnowledgeBaseRecordDto record = new KnowledgeBaseRecordDto();
+        record.setType(SECTION);
+        record.setId(id);
+        record.setName(name);
+        return record;
+    }
+
+    public static KnowledgeBaseRecordDto node(Long id, Long section, String name, NodeType nodeType) {
+        KnowledgeBaseRecordDto record = new KnowledgeBaseRecordDto();
+        record.setType(NODE);
+        record.setId(id);
+        record.setSection(section);
+        record.setName(name);
+        record.setNodeType(nodeType);
+        return record;
+    }
+
+    public static KnowledgeBaseRecordDto nodeAttribute(Long node, Long attribute, String activationCondition) {
+        KnowledgeBaseRecordDto record = new KnowledgeBaseRecordDto();
+        record.setType(NODE_ATTRIBUTE);
+        record.setNode(node);
+        record.setAttribute(attribute);
+        record.setActivationCondition(activationCondition);
+        return record;
+    }
+
+    public static KnowledgeBaseRecordDto connection(Long source, Long target, ConnectionType connectionType) {
+        KnowledgeBaseRecordDto record = new KnowledgeBaseRecordDto();
+        record.setType(CONNECTION);
+        record.setSource(source);
+        record.setTarget(target);
+        record.setConnectionType(connectionType);
+        return record;
+    }
+}
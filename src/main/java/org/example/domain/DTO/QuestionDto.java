@@ -0,0 +1,15 @@
+package org.example.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class QuestionDto {
+    private Long id;
+    private String name;
+    private String attributeName;
+    private String attributeValueArea;
+    // Ожидаемый прирост информации о множестве гипотез от ответа, в битах
+    private double score;
+}
@@ -0,0 +1,14 @@
+package org.example.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class RankedAnswerDto {
+    private List<AnswerDto> answers;
+    // Уточняющие вопросы, от самого полезного
+    private List<QuestionDto> questions;
+}
@@ -15,11 +15,17 @@ public class RequestDTO {
     private final List<Parameter> parameters;
     private final boolean HypothesesSetDifferentiationNeeded;
     private final boolean HypothesesSetMinimizationNeeded;
+    private final boolean Explain;
 
+    /**
+     * Значение признака {@code featureId} или, если он не указан, наблюдаемое значение атрибута
+     * {@code attributeName}: тогда активируются все признаки атрибута, условие которых выполняется.
+     */
     @Getter
     @AllArgsConstructor
     public static class Parameter {
         private Long featureId;
         private String attributeValue;
+        private String attributeName;
     }
 }
@@ -0,0 +1,15 @@
+package org.example.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SessionDto {
+    private String sessionId;
+    private List<AnswerDto> answers;
+    // Признаки, подтверждение или опровержение которых может изменить ответ
+    private List<QuestionDto> questions;
+}
@@ -0,0 +1,41 @@
+package org.example.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Трасса вывода одного запроса: какие узлы сработали, какие гипотезы и почему были исключены,
+ * сколько времени и работы занял каждый шаг. Заполняется только в режиме explain.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class SolveTraceDto {
+    private List<Long> activatedFeatures = new ArrayList<>();
+    private List<Long> inactiveFeatures = new ArrayList<>();
+    // Узлы AND и OR в порядке срабатывания
+    private List<Long> activatedNodes = new ArrayList<>();
+    private List<Long> activatedHypotheses = new ArrayList<>();
+    private List<Removal> removedHypotheses = new ArrayList<>();
+    private Map<String, Long> stepNanos = new LinkedHashMap<>();
+    private long nodesVisited;
+    private long edgesTraversed;
+    private long argumentIterations;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Removal {
+        private Long hypothesisId;
+        private int step;
+        private String reason;
+        // Признак или гипотеза, из-за которых гипотеза исключена
+        private Long causeId;
+    }
+}
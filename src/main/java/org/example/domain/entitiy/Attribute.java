@@ -2,16 +2,19 @@ package org.example.domain.entitiy;
 
 import jakarta.persistence.*;
 import lombok.Getter;
+import org.example.domain.listener.KnowledgeBaseChangeListener;
 import org.example.domain.types.AttributeType;
 
 import java.util.List;
 
 @Entity
 @Table(name = "attributes")
+@EntityListeners(KnowledgeBaseChangeListener.class)
 @Getter
 public class Attribute {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "attributes_id_seq")
+    @SequenceGenerator(name = "attributes_id_seq", sequenceName = "attributes_id_seq", allocationSize = 1)
     private Long id;
 
     @Column(nullable = false)
@@ -2,16 +2,19 @@ package org.example.domain.entitiy;
 
 import jakarta.persistence.*;
 import lombok.Getter;
+import org.example.domain.listener.KnowledgeBaseChangeListener;
 import org.example.domain.types.NodeType;
 
 import java.util.List;
 
 @Entity
 @Table(name = "nodes")
+@EntityListeners(KnowledgeBaseChangeListener.class)
 @Getter
 public class Node {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "nodes_id_seq")
+    @SequenceGenerator(name = "nodes_id_seq", sequenceName = "nodes_id_seq", allocationSize = 1)
     private Long id;
 
     @ManyToOne
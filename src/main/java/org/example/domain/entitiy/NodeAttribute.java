@@ -4,12 +4,14 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.example.domain.listener.KnowledgeBaseChangeListener;
 
 import java.io.Serializable;
 import java.util.Objects;
 
 @Entity
 @Table(name = "node_attributes")
+@EntityListeners(KnowledgeBaseChangeListener.class)
 @Getter
 public class NodeAttribute {
     @EmbeddedId
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.example.domain.listener.KnowledgeBaseChangeListener;
 import org.example.domain.types.ConnectionType;
 
 import java.io.Serializable;
@@ -11,6 +12,7 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "node_connections")
+@EntityListeners(KnowledgeBaseChangeListener.class)
 @Getter
 public class NodeConnection {
     @EmbeddedId
@@ -2,15 +2,18 @@ package org.example.domain.entitiy;
 
 import jakarta.persistence.*;
 import lombok.Getter;
+import org.example.domain.listener.KnowledgeBaseChangeListener;
 
 import java.util.List;
 
 @Entity
 @Table(name = "sections", uniqueConstraints = {@UniqueConstraint(columnNames = {"kb_id", "name"})})
+@EntityListeners(KnowledgeBaseChangeListener.class)
 @Getter
 public class Section {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sections_id_seq")
+    @SequenceGenerator(name = "sections_id_seq", sequenceName = "sections_id_seq", allocationSize = 1)
     private Long id;
 
     @ManyToOne
@@ -23,4 +26,15 @@ public class Section {
     @OneToMany(mappedBy = "section", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Node> nodes;
 
+    // База знаний на момент загрузки: при переносе раздела сбрасываются графы обеих баз
+    @Transient
+    private Long persistedKbId;
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    private void rememberKnowledgeBase() {
+        persistedKbId = knowledgeBase == null ? null : knowledgeBase.getId();
+    }
+
 }
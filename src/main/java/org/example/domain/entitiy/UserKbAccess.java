@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.example.domain.listener.UserKbAccessListener;
 import org.example.domain.types.AccessLevel;
 
 import java.io.Serializable;
@@ -11,6 +12,7 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "user_kb_access")
+@EntityListeners(UserKbAccessListener.class)
 @Getter
 @AllArgsConstructor
 public class UserKbAccess implements Serializable{
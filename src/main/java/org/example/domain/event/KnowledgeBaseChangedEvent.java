@@ -0,0 +1,11 @@
+package org.example.domain.event;
+
+import org.example.domain.graph.GraphChange;
+
+/**
+ * Изменение базы знаний {@code kbId}. Если {@code change} равно {@code null},
+ * изменение нельзя применить к графу частично и граф нужно собрать заново,
+ * {@code kbId}, равный {@code null}, означает все базы знаний.
+ */
+public record KnowledgeBaseChangedEvent(Long kbId, GraphChange change) {
+}
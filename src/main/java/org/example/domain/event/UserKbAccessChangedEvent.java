@@ -0,0 +1,4 @@
+package org.example.domain.event;
+
+public record UserKbAccessChangedEvent(Long userId, Long kbId) {
+}
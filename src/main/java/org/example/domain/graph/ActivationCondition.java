@@ -0,0 +1,108 @@
+package org.example.domain.graph;
+
+import org.example.domain.types.AttributeType;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Условие активации узла-признака, разобранное один раз при загрузке графа.
+ * Формат строки условия: {@code a:b} - диапазон целых, {@code [a,b,c]} - набор значений,
+ * любая другая строка - точное совпадение.
+ */
+public sealed interface ActivationCondition {
+    Pattern RANGE = Pattern.compile("\\d+:\\d+");
+    Pattern DISCRETE = Pattern.compile("\\[\\d+(,\\d+)*\\]");
+
+    boolean matches(String value);
+
+    AttributeType getAttributeType();
+
+    static ActivationCondition compile(String condition) {
+        if (RANGE.matcher(condition).matches()) {
+            int separator = condition.indexOf(':');
+            return new Range(Long.parseLong(condition.substring(0, separator)),
+                    Long.parseLong(condition.substring(separator + 1)));
+        } else if (DISCRETE.matcher(condition).matches()) {
+            return new Discrete(Set.copyOf(Arrays.asList(condition.substring(1, condition.length() - 1).split(","))));
+        } else {
+            return new Exact(condition);
+        }
+    }
+
+    record Range(long start, long end) implements ActivationCondition {
+        @Override
+        public boolean matches(String value) {
+            Long number = parse(value);
+            return number != null && number >= start && number <= end;
+        }
+
+        /**
+         * Разбирает значение атрибута как целое; {@code null}, если это не число в пределах int.
+         */
+        public static Long parse(String value) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+
+            // Разбор как в Integer.parseInt, но без создания исключения на нечисловом вводе
+            int position = 0;
+            boolean negative = false;
+            char first = value.charAt(0);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                if (value.length() == 1) {
+                    return null;
+                }
+                position = 1;
+            }
+
+            long number = 0;
+            long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+            for (; position < value.length(); position++) {
+                int digit = Character.digit(value.charAt(position), 10);
+                if (digit < 0) {
+                    return null;
+                }
+                number = number * 10 + digit;
+                if (number > limit) {
+                    return null;
+                }
+            }
+            if (negative) {
+                number = -number;
+            }
+            return number;
+        }
+
+        @Override
+        public AttributeType getAttributeType() {
+            return AttributeType.RANGE;
+        }
+    }
+
+    record Discrete(Set<String> values) implements ActivationCondition {
+        @Override
+        public boolean matches(String value) {
+            return value != null && values.contains(value);
+        }
+
+        @Override
+        public AttributeType getAttributeType() {
+            return AttributeType.DISCRETE;
+        }
+    }
+
+    record Exact(String expected) implements ActivationCondition {
+        @Override
+        public boolean matches(String value) {
+            return expected.equals(value);
+        }
+
+        @Override
+        public AttributeType getAttributeType() {
+            return AttributeType.STRING;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.domain.graph;
+
+/**
+ * Списки смежности в формате CSR: рёбра узла {@code node} занимают
+ * позиции {@code [start(node), end(node))} в массивах {@code targets} и {@code connectionTypes}.
+ */
+public final class Adjacency {
+    private final int[] offsets;
+    private final int[] targets;
+    private final byte[] connectionTypes;
+
+    private Adjacency(int[] offsets, int[] targets, byte[] connectionTypes) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.connectionTypes = connectionTypes;
+    }
+
+    static Adjacency wrap(int[] offsets, int[] targets, byte[] connectionTypes) {
+        return new Adjacency(offsets, targets, connectionTypes);
+    }
+
+    static Adjacency of(int size, int[] sources, int[] targets, byte[] connectionTypes, int edgeCount) {
+        int[] offsets = new int[size + 1];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            offsets[sources[edge] + 1]++;
+        }
+        for (int node = 0; node < size; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+
+        int[] position = new int[size];
+        System.arraycopy(offsets, 0, position, 0, size);
+        int[] sortedTargets = new int[edgeCount];
+        byte[] sortedTypes = new byte[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int slot = position[sources[edge]]++;
+            sortedTargets[slot] = targets[edge];
+            sortedTypes[slot] = connectionTypes[edge];
+        }
+        return new Adjacency(offsets, sortedTargets, sortedTypes);
+    }
+
+    public int start(int node) {
+        return offsets[node];
+    }
+
+    public int end(int node) {
+        return offsets[node + 1];
+    }
+
+    public int degree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public byte connectionType(int edge) {
+        return connectionTypes[edge];
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    byte[] connectionTypes() {
+        return connectionTypes;
+    }
+}
@@ -0,0 +1,208 @@
+package org.example.domain.graph;
+
+import org.example.domain.types.NodeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс признаков по атрибуту: по имени атрибута и наблюдаемому значению находит все признаки,
+ * условие активации которых выполняется. Диапазоны хранятся в дереве интервалов, наборы значений
+ * и точные совпадения - в хеш-таблицах, так что поиск стоит O(log n + k), а не просмотра всех признаков.
+ */
+public final class AttributeIndex {
+    private final Map<String, AttributeEntry> entries;
+
+    AttributeIndex(byte[] nodeTypes, String[] attributeNames, ActivationCondition[] conditions) {
+        Map<String, List<Integer>> featuresByAttribute = new HashMap<>();
+        for (int node = 0; node < conditions.length; node++) {
+            if (nodeTypes[node] == NodeType.FEATURE.ordinal() && attributeNames[node] != null && conditions[node] != null) {
+                featuresByAttribute.computeIfAbsent(attributeNames[node], name -> new ArrayList<>()).add(node);
+            }
+        }
+        this.entries = new HashMap<>(featuresByAttribute.size() * 2);
+        featuresByAttribute.forEach((name, nodes) -> entries.put(name, new AttributeEntry(nodes, conditions)));
+    }
+
+    /**
+     * Добавляет в {@code matched} признаки атрибута, условие которых выполняется на {@code value},
+     * а в {@code unmatched} - остальные признаки этого атрибута. Неизвестный атрибут ничего не меняет.
+     */
+    public void lookup(String attributeName, String value, BitSet matched, BitSet unmatched) {
+        AttributeEntry entry = entries.get(attributeName);
+        if (entry == null) {
+            return;
+        }
+
+        int[] found = new int[entry.nodes.length];
+        int foundCount = 0;
+        if (value != null) {
+            int[] exact = entry.byValue.get(value);
+            if (exact != null) {
+                System.arraycopy(exact, 0, found, 0, exact.length);
+                foundCount = exact.length;
+            }
+            if (entry.ranges != null) {
+                Long number = ActivationCondition.Range.parse(value);
+                if (number != null) {
+                    foundCount = entry.ranges.stab(number, found, foundCount);
+                }
+            }
+        }
+
+        // У признака одно условие, поэтому найденные узлы не повторяются
+        Arrays.sort(found, 0, foundCount);
+        int position = 0;
+        for (int node : entry.nodes) {
+            if (position < foundCount && found[position] == node) {
+                matched.set(node);
+                position++;
+            } else {
+                unmatched.set(node);
+            }
+        }
+    }
+
+    /**
+     * Признаки атрибута, в порядке номеров узлов; пустой массив, если атрибут неизвестен.
+     */
+    public int[] features(String attributeName) {
+        AttributeEntry entry = entries.get(attributeName);
+        return entry == null ? new int[0] : entry.nodes.clone();
+    }
+
+    private static final class AttributeEntry {
+        private final int[] nodes;
+        // Точные значения и элементы наборов
+        private final Map<String, int[]> byValue;
+        private final IntervalTree ranges;
+
+        AttributeEntry(List<Integer> nodes, ActivationCondition[] conditions) {
+            this.nodes = nodes.stream().mapToInt(Integer::intValue).toArray();
+            Map<String, List<Integer>> byValue = new HashMap<>();
+            List<Integer> ranges = new ArrayList<>();
+            for (int node : this.nodes) {
+                ActivationCondition condition = conditions[node];
+                if (condition instanceof ActivationCondition.Range range) {
+                    if (range.start() <= range.end()) {
+                        ranges.add(node);
+                    }
+                } else if (condition instanceof ActivationCondition.Discrete discrete) {
+                    for (String value : discrete.values()) {
+                        byValue.computeIfAbsent(value, ignored -> new ArrayList<>()).add(node);
+                    }
+                } else if (condition instanceof ActivationCondition.Exact exact) {
+                    byValue.computeIfAbsent(exact.expected(), ignored -> new ArrayList<>()).add(node);
+                }
+            }
+            this.byValue = new HashMap<>(byValue.size() * 2);
+            byValue.forEach((value, matching) -> this.byValue.put(value, matching.stream().mapToInt(Integer::intValue).toArray()));
+            this.ranges = ranges.isEmpty() ? null : IntervalTree.build(ranges.stream().mapToInt(Integer::intValue).toArray(), conditions);
+        }
+    }
+
+    /**
+     * Дерево интервалов с центрами: в узле хранятся интервалы, содержащие центр, упорядоченные
+     * по началу и по концу; остальные уходят в левое или правое поддерево.
+     */
+    private static final class IntervalTree {
+        private final long center;
+        private final int[] byStart;
+        private final long[] starts;
+        private final int[] byEnd;
+        private final long[] ends;
+        private final IntervalTree left;
+        private final IntervalTree right;
+
+        private IntervalTree(long center, int[] byStart, long[] starts, int[] byEnd, long[] ends,
+                             IntervalTree left, IntervalTree right) {
+            this.center = center;
+            this.byStart = byStart;
+            this.starts = starts;
+            this.byEnd = byEnd;
+            this.ends = ends;
+            this.left = left;
+            this.right = right;
+        }
+
+        static IntervalTree build(int[] nodes, ActivationCondition[] conditions) {
+            if (nodes.length == 0) {
+                return null;
+            }
+            long[] endpoints = new long[nodes.length * 2];
+            for (int i = 0; i < nodes.length; i++) {
+                ActivationCondition.Range range = (ActivationCondition.Range) conditions[nodes[i]];
+                endpoints[2 * i] = range.start();
+                endpoints[2 * i + 1] = range.end();
+            }
+            Arrays.sort(endpoints);
+            long center = endpoints[nodes.length];
+
+            List<Integer> leftNodes = new ArrayList<>();
+            List<Integer> rightNodes = new ArrayList<>();
+            List<Integer> overlapping = new ArrayList<>();
+            for (int node : nodes) {
+                ActivationCondition.Range range = (ActivationCondition.Range) conditions[node];
+                if (range.end() < center) {
+                    leftNodes.add(node);
+                } else if (range.start() > center) {
+                    rightNodes.add(node);
+                } else {
+                    overlapping.add(node);
+                }
+            }
+
+            int[] byStart = overlapping.stream()
+                    .sorted((first, second) -> Long.compare(start(conditions, first), start(conditions, second)))
+                    .mapToInt(Integer::intValue).toArray();
+            int[] byEnd = overlapping.stream()
+                    .sorted((first, second) -> Long.compare(end(conditions, second), end(conditions, first)))
+                    .mapToInt(Integer::intValue).toArray();
+            long[] starts = new long[byStart.length];
+            long[] ends = new long[byEnd.length];
+            for (int i = 0; i < byStart.length; i++) {
+                starts[i] = start(conditions, byStart[i]);
+                ends[i] = end(conditions, byEnd[i]);
+            }
+            return new IntervalTree(center, byStart, starts, byEnd, ends,
+                    build(leftNodes.stream().mapToInt(Integer::intValue).toArray(), conditions),
+                    build(rightNodes.stream().mapToInt(Integer::intValue).toArray(), conditions));
+        }
+
+        // Дописывает найденные узлы в found начиная с count, возвращает новое число
+        int stab(long value, int[] found, int count) {
+            IntervalTree tree = this;
+            while (tree != null) {
+                if (value < tree.center) {
+                    for (int i = 0; i < tree.byStart.length && tree.starts[i] <= value; i++) {
+                        found[count++] = tree.byStart[i];
+                    }
+                    tree = tree.left;
+                } else if (value > tree.center) {
+                    for (int i = 0; i < tree.byEnd.length && tree.ends[i] >= value; i++) {
+                        found[count++] = tree.byEnd[i];
+                    }
+                    tree = tree.right;
+                } else {
+                    for (int node : tree.byStart) {
+                        found[count++] = node;
+                    }
+                    return count;
+                }
+            }
+            return count;
+        }
+
+        private static long start(ActivationCondition[] conditions, int node) {
+            return ((ActivationCondition.Range) conditions[node]).start();
+        }
+
+        private static long end(ActivationCondition[] conditions, int node) {
+            return ((ActivationCondition.Range) conditions[node]).end();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.domain.graph;
+
+import org.example.domain.types.ConnectionType;
+import org.example.domain.types.NodeType;
+
+/**
+ * Изменение одной строки базы знаний, которое можно применить к уже собранному графу.
+ * Применение идемпотентно: повтор изменения, уже попавшего в граф, его не меняет.
+ */
+public sealed interface GraphChange {
+
+    void applyTo(KnowledgeBaseGraph.Builder builder);
+
+    record NodeSaved(Long nodeId, String name, NodeType nodeType) implements GraphChange {
+        @Override
+        public void applyTo(KnowledgeBaseGraph.Builder builder) {
+            builder.putNode(nodeId, name, nodeType);
+        }
+    }
+
+    record NodeRemoved(Long nodeId) implements GraphChange {
+        @Override
+        public void applyTo(KnowledgeBaseGraph.Builder builder) {
+            builder.removeNode(nodeId);
+        }
+    }
+
+    record ConnectionSaved(Long sourceNodeId, Long targetNodeId, ConnectionType connectionType) implements GraphChange {
+        @Override
+        public void applyTo(KnowledgeBaseGraph.Builder builder) {
+            // Связь с узлом, который уже удалён, в граф не попадает
+            if (builder.hasNode(sourceNodeId) && builder.hasNode(targetNodeId)) {
+                builder.addConnection(sourceNodeId, targetNodeId, connectionType);
+            }
+        }
+    }
+
+    record ConnectionRemoved(Long sourceNodeId, Long targetNodeId) implements GraphChange {
+        @Override
+        public void applyTo(KnowledgeBaseGraph.Builder builder) {
+            builder.removeConnection(sourceNodeId, targetNodeId);
+        }
+    }
+
+    record AttributeSaved(Long nodeId, String attributeName, String attributeValueArea,
+                          String activationCondition) implements GraphChange {
+        @Override
+        public void applyTo(KnowledgeBaseGraph.Builder builder) {
+            builder.putAttribute(nodeId, attributeName, attributeValueArea, activationCondition);
+        }
+    }
+
+    record AttributeRemoved(Long nodeId) implements GraphChange {
+        @Override
+        public void applyTo(KnowledgeBaseGraph.Builder builder) {
+            builder.putAttribute(nodeId, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package org.example.domain.graph;
+
+import org.example.domain.types.NodeType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.example.domain.graph.KnowledgeBaseGraph.*;
+
+/**
+ * Оптимизация графа при загрузке базы знаний. Результат вывода на оптимизированном графе совпадает
+ * с результатом на исходном для любых параметров; меняются только промежуточные узлы в трассе и счётчики.
+ * <ol>
+ *     <li>Удаляются узлы, которые не могут активироваться ни при каком наборе признаков:
+ *     вершины, не достижимые от признаков с условием активации, и узлы AND с таким входом.</li>
+ *     <li>Удаляются узлы AND и OR, от которых не достижима ни одна гипотеза.</li>
+ *     <li>Граф упорядочивается топологически; узлы AND и OR на циклах находятся отдельно и не сворачиваются.</li>
+ *     <li>Узел AND или OR с единственным входом сворачивается: его исходящие связи переносятся на источник входа.
+ *     Узел не сворачивается, если у источника уже есть связь с тем же узлом или если источник - признак,
+ *     а у узла есть связь S (связь S от признака исключает гипотезу).</li>
+ * </ol>
+ * Повторяющихся связей в графе нет: сборщик хранит одну связь на пару узлов.
+ */
+public final class GraphOptimizer {
+    private GraphOptimizer() {
+    }
+
+    public record Result(KnowledgeBaseGraph graph, Report report) {
+    }
+
+    public record Report(int nodesBefore, int edgesBefore, int deadNodes, int irrelevantNodes, int collapsedNodes,
+                         int cycles, int cyclicNodes, int levels, int nodesAfter, int edgesAfter) {
+        public boolean changed() {
+            return nodesAfter != nodesBefore || edgesAfter != edgesBefore;
+        }
+    }
+
+    public static Result optimize(KnowledgeBaseGraph graph) {
+        int size = graph.size();
+        Adjacency outgoing = graph.getOutgoing();
+
+        BitSet removed = findDeadNodes(graph);
+        int deadNodes = removed.cardinality();
+        BitSet irrelevant = findIrrelevantNodes(graph, removed);
+        int irrelevantNodes = irrelevant.cardinality();
+        removed.or(irrelevant);
+
+        int[] order = new int[size];
+        int[] levels = new int[size];
+        int ordered = levelize(graph, removed, order, levels);
+        int levelCount = 0;
+        for (int position = 0; position < ordered; position++) {
+            levelCount = Math.max(levelCount, levels[order[position]] + 1);
+        }
+        int[] cycleStats = findAuxiliaryCycles(graph, removed);
+
+        // Связи, оставшиеся после удаления узлов, по паре (источник, цель)
+        Set<Long> edges = new HashSet<>();
+        for (int node = 0; node < size; node++) {
+            if (removed.get(node)) {
+                continue;
+            }
+            for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+                if (!removed.get(outgoing.target(edge))) {
+                    edges.add(edgeKey(node, outgoing.target(edge)));
+                }
+            }
+        }
+
+        // representative[x] - узел, на который перенесены связи свёрнутого x, иначе сам x.
+        // В топологическом порядке вход узла обработан раньше него, поэтому цепочки сворачиваются за один проход
+        int[] representative = new int[size];
+        for (int node = 0; node < size; node++) {
+            representative[node] = node;
+        }
+        BitSet collapsed = new BitSet(size);
+        for (int position = 0; position < ordered; position++) {
+            int node = order[position];
+            int input = singleInput(graph, removed, node);
+            if (input < 0) {
+                continue;
+            }
+            int source = representative[input];
+            if (!canCollapse(graph, removed, edges, node, source)) {
+                continue;
+            }
+            edges.remove(edgeKey(source, node));
+            for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+                int target = outgoing.target(edge);
+                if (!removed.get(target)) {
+                    edges.remove(edgeKey(node, target));
+                    edges.add(edgeKey(source, target));
+                }
+            }
+            representative[node] = source;
+            collapsed.set(node);
+        }
+
+        KnowledgeBaseGraph.Builder builder = KnowledgeBaseGraph.builder(graph.getKbId())
+                .version(graph.getVersion())
+                .source(graph);
+        for (int node = 0; node < size; node++) {
+            if (!removed.get(node) && !collapsed.get(node)) {
+                builder.copyNode(graph, node);
+            }
+        }
+        int edgesAfter = 0;
+        for (int node = 0; node < size; node++) {
+            if (removed.get(node)) {
+                continue;
+            }
+            for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+                int target = outgoing.target(edge);
+                if (removed.get(target) || collapsed.get(target)) {
+                    continue;
+                }
+                builder.addConnection(graph.getId(representative[node]), graph.getId(target),
+                        connectionType(outgoing.connectionType(edge)));
+                edgesAfter++;
+            }
+        }
+
+        int nodesAfter = size - removed.cardinality() - collapsed.cardinality();
+        Report report = new Report(size, outgoing.edgeCount(), deadNodes, irrelevantNodes, collapsed.cardinality(),
+                cycleStats[0], cycleStats[1], levelCount, nodesAfter, edgesAfter);
+        return new Result(report.changed() ? builder.build() : graph, report);
+    }
+
+    /**
+     * Узлы, не активируемые даже при всех подтверждённых признаках. Активация монотонна по набору признаков,
+     * поэтому то, что не срабатывает при всех признаках, не срабатывает никогда. Проверка повторяет шаг 1 решателя.
+     */
+    private static BitSet findDeadNodes(KnowledgeBaseGraph graph) {
+        int size = graph.size();
+        Adjacency outgoing = graph.getOutgoing();
+        Adjacency incoming = graph.getIncoming();
+        BitSet alive = new BitSet(size);
+        BitSet reached = new BitSet(size);
+        int[] aliveInputs = new int[size];
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int node = 0; node < size; node++) {
+            if (graph.isFeature(node) && graph.getCondition(node) != null) {
+                alive.set(node);
+                queue[tail++] = node;
+            }
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            boolean propagating = graph.isFeature(node) || graph.isAuxiliary(node);
+            for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+                int target = outgoing.target(edge);
+                if (graph.isFeature(target)) {
+                    continue;
+                }
+                aliveInputs[target]++;
+                if (propagating && outgoing.connectionType(edge) != S) {
+                    reached.set(target);
+                }
+                if (!alive.get(target) && reached.get(target)
+                        && (graph.getNodeType(target) != NodeType.AND || aliveInputs[target] == incoming.degree(target))) {
+                    alive.set(target);
+                    queue[tail++] = target;
+                }
+            }
+        }
+
+        BitSet dead = new BitSet(size);
+        for (int node = 0; node < size; node++) {
+            if (!graph.isFeature(node) && !alive.get(node)) {
+                dead.set(node);
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * Узлы AND и OR, от которых не достижима ни одна гипотеза: их активация не влияет на ответ.
+     */
+    private static BitSet findIrrelevantNodes(KnowledgeBaseGraph graph, BitSet removed) {
+        int size = graph.size();
+        Adjacency incoming = graph.getIncoming();
+        BitSet relevant = new BitSet(size);
+        int[] queue = new int[size];
+        int tail = 0;
+        for (int node = 0; node < size; node++) {
+            if (graph.isHypothesis(node) && !removed.get(node)) {
+                relevant.set(node);
+                queue[tail++] = node;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int edge = incoming.start(node); edge < incoming.end(node); edge++) {
+                int source = incoming.target(edge);
+                if (!removed.get(source) && !relevant.get(source)) {
+                    relevant.set(source);
+                    queue[tail++] = source;
+                }
+            }
+        }
+
+        BitSet irrelevant = new BitSet(size);
+        for (int node = 0; node < size; node++) {
+            if (graph.isAuxiliary(node) && !removed.get(node) && !relevant.get(node)) {
+                irrelevant.set(node);
+            }
+        }
+        return irrelevant;
+    }
+
+    /**
+     * Топологический порядок оставшихся узлов (алгоритм Кана) и уровень каждого - длина самого длинного пути к нему.
+     * Узлы на циклах и после них в порядок не попадают. Возвращает число упорядоченных узлов.
+     */
+    private static int levelize(KnowledgeBaseGraph graph, BitSet removed, int[] order, int[] levels) {
+        int size = graph.size();
+        Adjacency outgoing = graph.getOutgoing();
+        Adjacency incoming = graph.getIncoming();
+        int[] remainingInputs = new int[size];
+        int tail = 0;
+        for (int node = 0; node < size; node++) {
+            if (removed.get(node)) {
+                continue;
+            }
+            for (int edge = incoming.start(node); edge < incoming.end(node); edge++) {
+                if (!removed.get(incoming.target(edge))) {
+                    remainingInputs[node]++;
+                }
+            }
+            if (remainingInputs[node] == 0) {
+                order[tail++] = node;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = order[head];
+            for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+                int target = outgoing.target(edge);
+                if (removed.get(target)) {
+                    continue;
+                }
+                levels[target] = Math.max(levels[target], levels[node] + 1);
+                if (--remainingInputs[target] == 0) {
+                    order[tail++] = target;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Циклы среди узлов AND и OR: компоненты сильной связности (алгоритм Тарьяна без рекурсии)
+     * из нескольких узлов или с петлёй. Возвращает число циклов и число узлов в них.
+     */
+    private static int[] findAuxiliaryCycles(KnowledgeBaseGraph graph, BitSet removed) {
+        int size = graph.size();
+        Adjacency outgoing = graph.getOutgoing();
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        int[] nextEdge = new int[size];
+        int[] stack = new int[size];
+        int[] callStack = new int[size];
+        BitSet onStack = new BitSet(size);
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int stackSize = 0;
+        int cycles = 0;
+        int cyclicNodes = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (!isAuxiliary(graph, removed, root) || index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callStack[depth++] = root;
+            index[root] = lowLink[root] = counter++;
+            nextEdge[root] = outgoing.start(root);
+            stack[stackSize++] = root;
+            onStack.set(root);
+
+            while (depth > 0) {
+                int node = callStack[depth - 1];
+                if (nextEdge[node] < outgoing.end(node)) {
+                    int target = outgoing.target(nextEdge[node]++);
+                    if (!isAuxiliary(graph, removed, target)) {
+                        continue;
+                    }
+                    if (index[target] < 0) {
+                        index[target] = lowLink[target] = counter++;
+                        nextEdge[target] = outgoing.start(target);
+                        stack[stackSize++] = target;
+                        onStack.set(target);
+                        callStack[depth++] = target;
+                    } else if (onStack.get(target)) {
+                        lowLink[node] = Math.min(lowLink[node], index[target]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0) {
+                    int parent = callStack[depth - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+                if (lowLink[node] == index[node]) {
+                    int componentSize = 0;
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack.clear(member);
+                        componentSize++;
+                    } while (member != node);
+                    if (componentSize > 1 || hasSelfLoop(outgoing, node)) {
+                        cycles++;
+                        cyclicNodes += componentSize;
+                    }
+                }
+            }
+        }
+        return new int[]{cycles, cyclicNodes};
+    }
+
+    private static boolean isAuxiliary(KnowledgeBaseGraph graph, BitSet removed, int node) {
+        return graph.isAuxiliary(node) && !removed.get(node);
+    }
+
+    private static boolean hasSelfLoop(Adjacency outgoing, int node) {
+        for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+            if (outgoing.target(edge) == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Источник единственного входа узла AND или OR, если этот вход может его активировать; иначе -1.
+     */
+    private static int singleInput(KnowledgeBaseGraph graph, BitSet removed, int node) {
+        if (!graph.isAuxiliary(node) || removed.get(node)) {
+            return -1;
+        }
+        Adjacency incoming = graph.getIncoming();
+        int input = -1;
+        for (int edge = incoming.start(node); edge < incoming.end(node); edge++) {
+            int source = incoming.target(edge);
+            if (removed.get(source)) {
+                continue;
+            }
+            if (input >= 0 || incoming.connectionType(edge) == S) {
+                return -1;
+            }
+            input = source;
+        }
+        return input;
+    }
+
+    private static boolean canCollapse(KnowledgeBaseGraph graph, BitSet removed, Set<Long> edges, int node, int source) {
+        if (source == node || !(graph.isFeature(source) || graph.isAuxiliary(source))) {
+            return false;
+        }
+        Adjacency outgoing = graph.getOutgoing();
+        for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+            int target = outgoing.target(edge);
+            if (removed.get(target)) {
+                continue;
+            }
+            if (target == source || edges.contains(edgeKey(source, target))
+                    || (graph.isFeature(source) && outgoing.connectionType(edge) == S)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long edgeKey(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,414 @@
+package org.example.domain.graph;
+
+import lombok.Getter;
+import org.example.domain.types.ConnectionType;
+import org.example.domain.types.NodeType;
+
+import java.util.*;
+
+/**
+ * Скомпилированный граф базы знаний. После сборки не изменяется
+ * и разделяется между всеми запросами к этой базе знаний.
+ * Узлы пронумерованы от 0 до {@code size() - 1}, рёбра хранятся в формате CSR.
+ */
+public final class KnowledgeBaseGraph {
+    public static final byte TRA = (byte) ConnectionType.TRA.ordinal();
+    public static final byte RS = (byte) ConnectionType.RS.ordinal();
+    public static final byte S = (byte) ConnectionType.S.ordinal();
+    public static final byte SN = (byte) ConnectionType.SN.ordinal();
+
+    private static final NodeType[] NODE_TYPES = NodeType.values();
+    private static final ConnectionType[] CONNECTION_TYPES = ConnectionType.values();
+
+    @Getter
+    private final Long kbId;
+    // Версия данных базы знаний, из которых собран граф: растёт с каждым изменением узлов, связей и атрибутов
+    @Getter
+    private final long version;
+    private final long[] ids;
+    private final String[] names;
+    private final byte[] nodeTypes;
+    private final String[] attributeNames;
+    private final String[] attributeValueAreas;
+    private final String[] activationConditions;
+    private final ActivationCondition[] conditions;
+    private final Map<Long, Integer> indexById;
+    private final int[] featureOrdinals;
+    private final int[] features;
+    @Getter
+    private final Adjacency outgoing;
+    @Getter
+    private final Adjacency incoming;
+    private final Adjacency[] outgoingByType;
+    private final Adjacency[] incomingByType;
+    private final int[] components;
+    private final int[] componentSizes;
+    @Getter
+    private final AttributeIndex attributeIndex;
+    // Исходный граф, если этот получен из него оптимизацией; изменения применяются к исходному
+    private final KnowledgeBaseGraph source;
+
+    KnowledgeBaseGraph(Long kbId, long version, long[] ids, String[] names, byte[] nodeTypes,
+                       String[] attributeNames, String[] attributeValueAreas, String[] activationConditions,
+                       ActivationCondition[] conditions, Adjacency outgoing, Adjacency incoming,
+                       Adjacency[] outgoingByType, Adjacency[] incomingByType, KnowledgeBaseGraph source) {
+        int size = ids.length;
+        this.kbId = kbId;
+        this.version = version;
+        this.ids = ids;
+        this.names = names;
+        this.nodeTypes = nodeTypes;
+        this.attributeNames = attributeNames;
+        this.attributeValueAreas = attributeValueAreas;
+        this.activationConditions = activationConditions;
+        this.conditions = conditions;
+        this.indexById = new HashMap<>(size * 2);
+        for (int node = 0; node < size; node++) {
+            indexById.put(ids[node], node);
+        }
+
+        // Признаки дополнительно пронумерованы подряд, по этим номерам строятся множества аргументов
+        this.featureOrdinals = new int[size];
+        int featureCount = 0;
+        for (int node = 0; node < size; node++) {
+            featureOrdinals[node] = isFeature(node) ? featureCount++ : -1;
+        }
+        this.features = new int[featureCount];
+        for (int node = 0; node < size; node++) {
+            if (featureOrdinals[node] >= 0) {
+                features[featureOrdinals[node]] = node;
+            }
+        }
+        this.attributeIndex = new AttributeIndex(nodeTypes, attributeNames, conditions);
+        this.source = source;
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.outgoingByType = outgoingByType;
+        this.incomingByType = incomingByType;
+
+        // Компоненты слабой связности: между узлами разных компонент нет рёбер,
+        // поэтому активация в них распространяется независимо
+        int[] parent = new int[size];
+        for (int node = 0; node < size; node++) {
+            parent[node] = node;
+        }
+        for (int node = 0; node < size; node++) {
+            for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+                int first = root(parent, node);
+                int second = root(parent, outgoing.target(edge));
+                if (first != second) {
+                    parent[Math.max(first, second)] = Math.min(first, second);
+                }
+            }
+        }
+        this.components = new int[size];
+        int componentCount = 0;
+        for (int node = 0; node < size; node++) {
+            int root = root(parent, node);
+            components[node] = root == node ? componentCount++ : components[root];
+        }
+        this.componentSizes = new int[componentCount];
+        for (int node = 0; node < size; node++) {
+            componentSizes[components[node]]++;
+        }
+    }
+
+    private static int root(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Число узлов, которые граф удерживает в памяти, вместе с исходным графом.
+     */
+    public int retainedSize() {
+        return source == null ? size() : size() + source.size();
+    }
+
+    public int indexOf(Long id) {
+        Integer index = indexById.get(id);
+        return index == null ? -1 : index;
+    }
+
+    public long getId(int node) {
+        return ids[node];
+    }
+
+    public String getName(int node) {
+        return names[node];
+    }
+
+    public NodeType getNodeType(int node) {
+        return NODE_TYPES[nodeTypes[node]];
+    }
+
+    public boolean isFeature(int node) {
+        return nodeTypes[node] == NodeType.FEATURE.ordinal();
+    }
+
+    public boolean isHypothesis(int node) {
+        return nodeTypes[node] == NodeType.HYPOTHESIS.ordinal();
+    }
+
+    public boolean isAuxiliary(int node) {
+        return nodeTypes[node] == NodeType.AND.ordinal() || nodeTypes[node] == NodeType.OR.ordinal();
+    }
+
+    public int featureCount() {
+        return features.length;
+    }
+
+    public int featureOrdinal(int node) {
+        return featureOrdinals[node];
+    }
+
+    public int featureNode(int featureOrdinal) {
+        return features[featureOrdinal];
+    }
+
+    public String getAttributeName(int node) {
+        return attributeNames[node];
+    }
+
+    public String getAttributeValueArea(int node) {
+        return attributeValueAreas[node];
+    }
+
+    public String getActivationCondition(int node) {
+        return activationConditions[node];
+    }
+
+    public ActivationCondition getCondition(int node) {
+        return conditions[node];
+    }
+
+    public int componentCount() {
+        return componentSizes.length;
+    }
+
+    public int componentOf(int node) {
+        return components[node];
+    }
+
+    public int componentSize(int component) {
+        return componentSizes[component];
+    }
+
+    public Adjacency getOutgoing(byte connectionType) {
+        return outgoingByType[connectionType];
+    }
+
+    public Adjacency getIncoming(byte connectionType) {
+        return incomingByType[connectionType];
+    }
+
+    public static ConnectionType connectionType(byte connectionType) {
+        return CONNECTION_TYPES[connectionType];
+    }
+
+    public static Builder builder(Long kbId) {
+        return new Builder(kbId);
+    }
+
+    /**
+     * Сборщик, заполненный узлами и связями этого графа. Используется для
+     * частичного обновления: изменения применяются к копии, сам граф остаётся прежним.
+     * У оптимизированного графа сборщик заполняется исходным графом.
+     */
+    public Builder toBuilder() {
+        if (source != null) {
+            return source.toBuilder();
+        }
+        Builder builder = new Builder(kbId).version(version);
+        for (int node = 0; node < size(); node++) {
+            builder.nodes.put(ids[node], new PendingNode(ids[node], names[node], getNodeType(node),
+                    attributeNames[node], attributeValueAreas[node], activationConditions[node], conditions[node]));
+        }
+        for (int node = 0; node < size(); node++) {
+            for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+                builder.connections.put(new ConnectionKey(ids[node], ids[outgoing.target(edge)]),
+                        connectionType(outgoing.connectionType(edge)));
+            }
+        }
+        return builder;
+    }
+
+    public static final class Builder {
+        private final Long kbId;
+        private long version;
+        private final Map<Long, PendingNode> nodes = new LinkedHashMap<>();
+        // Между парой узлов допускается одна связь, последняя заданная заменяет предыдущие
+        private final Map<ConnectionKey, ConnectionType> connections = new LinkedHashMap<>();
+        private KnowledgeBaseGraph source;
+
+        private Builder(Long kbId) {
+            this.kbId = kbId;
+        }
+
+        public Builder version(long version) {
+            this.version = version;
+            return this;
+        }
+
+        Builder source(KnowledgeBaseGraph source) {
+            this.source = source;
+            return this;
+        }
+
+        // Переносит узел другого графа вместе со скомпилированным условием
+        Builder copyNode(KnowledgeBaseGraph graph, int node) {
+            nodes.put(graph.ids[node], new PendingNode(graph.ids[node], graph.names[node], graph.getNodeType(node),
+                    graph.attributeNames[node], graph.attributeValueAreas[node], graph.activationConditions[node],
+                    graph.conditions[node]));
+            return this;
+        }
+
+        public boolean hasNode(Long id) {
+            return nodes.containsKey(id);
+        }
+
+        public Builder addNode(Long id, String name, NodeType nodeType) {
+            return addNode(id, name, nodeType, null, null, null);
+        }
+
+        public Builder addNode(Long id, String name, NodeType nodeType,
+                               String attributeName, String attributeValueArea, String activationCondition) {
+            nodes.putIfAbsent(id, new PendingNode(id, name, nodeType, attributeName, attributeValueArea, activationCondition, null));
+            return this;
+        }
+
+        /**
+         * Добавляет узел или меняет имя и тип существующего, сохраняя его атрибут.
+         */
+        public Builder putNode(Long id, String name, NodeType nodeType) {
+            PendingNode node = nodes.get(id);
+            if (node == null) {
+                return addNode(id, name, nodeType);
+            }
+            ActivationCondition condition = node.nodeType() == nodeType ? node.condition() : null;
+            nodes.put(id, new PendingNode(id, name, nodeType,
+                    node.attributeName(), node.attributeValueArea(), node.activationCondition(), condition));
+            return this;
+        }
+
+        public Builder removeNode(Long id) {
+            if (nodes.remove(id) != null) {
+                connections.keySet().removeIf(key -> key.sourceId().equals(id) || key.targetId().equals(id));
+            }
+            return this;
+        }
+
+        /**
+         * Задаёт атрибут узла, условие активации будет скомпилировано заново.
+         * Значения {@code null} снимают атрибут.
+         */
+        public Builder putAttribute(Long nodeId, String attributeName, String attributeValueArea, String activationCondition) {
+            PendingNode node = nodes.get(nodeId);
+            if (node != null) {
+                nodes.put(nodeId, new PendingNode(nodeId, node.name(), node.nodeType(),
+                        attributeName, attributeValueArea, activationCondition, null));
+            }
+            return this;
+        }
+
+        public Builder addConnection(Long sourceId, Long targetId, ConnectionType connectionType) {
+            connections.put(new ConnectionKey(sourceId, targetId), connectionType);
+            return this;
+        }
+
+        public Builder removeConnection(Long sourceId, Long targetId) {
+            connections.remove(new ConnectionKey(sourceId, targetId));
+            return this;
+        }
+
+        public KnowledgeBaseGraph build() {
+            int size = nodes.size();
+            Map<Long, Integer> indices = new HashMap<>(size * 2);
+            for (Long id : nodes.keySet()) {
+                indices.put(id, indices.size());
+            }
+
+            int edgeCount = connections.size();
+            int[] sources = new int[edgeCount];
+            int[] targets = new int[edgeCount];
+            byte[] types = new byte[edgeCount];
+            int edge = 0;
+            for (Map.Entry<ConnectionKey, ConnectionType> connection : connections.entrySet()) {
+                Integer source = indices.get(connection.getKey().sourceId());
+                Integer target = indices.get(connection.getKey().targetId());
+                if (source == null || target == null) {
+                    throw new IllegalStateException("Connection " + connection.getKey().sourceId() + " -> "
+                            + connection.getKey().targetId() + " of knowledge base " + kbId + " refers to an unknown node");
+                }
+                sources[edge] = source;
+                targets[edge] = target;
+                types[edge] = (byte) connection.getValue().ordinal();
+                edge++;
+            }
+
+            Adjacency[] outgoingByType = new Adjacency[CONNECTION_TYPES.length];
+            Adjacency[] incomingByType = new Adjacency[CONNECTION_TYPES.length];
+            for (ConnectionType connectionType : CONNECTION_TYPES) {
+                byte type = (byte) connectionType.ordinal();
+                int[] typedSources = new int[edgeCount];
+                int[] typedTargets = new int[edgeCount];
+                int count = 0;
+                for (edge = 0; edge < edgeCount; edge++) {
+                    if (types[edge] == type) {
+                        typedSources[count] = sources[edge];
+                        typedTargets[count] = targets[edge];
+                        count++;
+                    }
+                }
+                byte[] typedTypes = new byte[count];
+                Arrays.fill(typedTypes, type);
+                outgoingByType[type] = Adjacency.of(size, typedSources, typedTargets, typedTypes, count);
+                incomingByType[type] = Adjacency.of(size, typedTargets, typedSources, typedTypes, count);
+            }
+
+            long[] ids = new long[size];
+            String[] names = new String[size];
+            byte[] nodeTypes = new byte[size];
+            String[] attributeNames = new String[size];
+            String[] attributeValueAreas = new String[size];
+            String[] activationConditions = new String[size];
+            ActivationCondition[] conditions = new ActivationCondition[size];
+            int index = 0;
+            for (PendingNode node : nodes.values()) {
+                ids[index] = node.id();
+                names[index] = node.name();
+                nodeTypes[index] = (byte) node.nodeType().ordinal();
+                attributeNames[index] = node.attributeName();
+                attributeValueAreas[index] = node.attributeValueArea();
+                activationConditions[index] = node.activationCondition();
+                if (node.nodeType() == NodeType.FEATURE && node.activationCondition() != null) {
+                    // Условия, перенесённые из предыдущей версии графа, повторно не компилируются
+                    conditions[index] = node.condition() != null ?
+                            node.condition() :
+                            ActivationCondition.compile(node.activationCondition());
+                }
+                index++;
+            }
+
+            return new KnowledgeBaseGraph(kbId, version, ids, names, nodeTypes,
+                    attributeNames, attributeValueAreas, activationConditions, conditions,
+                    Adjacency.of(size, sources, targets, types, edgeCount),
+                    Adjacency.of(size, targets, sources, types, edgeCount),
+                    outgoingByType, incomingByType, this.source);
+        }
+    }
+
+    private record PendingNode(Long id, String name, NodeType nodeType, String attributeName,
+                               String attributeValueArea, String activationCondition, ActivationCondition condition) {
+    }
+
+    private record ConnectionKey(Long sourceId, Long targetId) {
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.domain.graph;
+
+import org.example.domain.types.ConnectionType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Двоичный снимок скомпилированного графа.
+ * Заголовок: сигнатура, версия формата, идентификатор базы знаний, отпечаток данных в базе данных,
+ * длина и CRC32 тела. Тело: таблица узлов, скомпилированные условия активации и все списки смежности
+ * в формате CSR, так что при чтении граф собирается без сортировки рёбер и разбора условий.
+ */
+public final class KnowledgeBaseGraphSnapshot {
+    private static final int MAGIC = 0x4B424753; // "KBGS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+
+    private static final byte NO_CONDITION = 0;
+    private static final byte RANGE = 1;
+    private static final byte DISCRETE = 2;
+    private static final byte EXACT = 3;
+
+    private KnowledgeBaseGraphSnapshot() {
+    }
+
+    public static byte[] encode(KnowledgeBaseGraph graph, long fingerprint) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            int size = graph.size();
+            out.writeInt(size);
+            for (int node = 0; node < size; node++) {
+                out.writeLong(graph.getId(node));
+                out.writeByte(graph.getNodeType(node).ordinal());
+                writeString(out, graph.getName(node));
+                writeString(out, graph.getAttributeName(node));
+                writeString(out, graph.getAttributeValueArea(node));
+                writeString(out, graph.getActivationCondition(node));
+                writeCondition(out, graph.getCondition(node));
+            }
+            writeAdjacency(out, graph.getOutgoing());
+            writeAdjacency(out, graph.getIncoming());
+            for (ConnectionType connectionType : ConnectionType.values()) {
+                writeAdjacency(out, graph.getOutgoing((byte) connectionType.ordinal()));
+                writeAdjacency(out, graph.getIncoming((byte) connectionType.ordinal()));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] body = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer snapshot = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        snapshot.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(graph.getKbId())
+                .putLong(fingerprint)
+                .putInt(body.length)
+                .putInt((int) crc.getValue())
+                .put(body);
+        return snapshot.array();
+    }
+
+    /**
+     * Читает граф из снимка. Возвращает {@code null}, если снимок записан другой версией формата,
+     * для другой базы знаний или по данным с другим отпечатком.
+     *
+     * @throws IllegalArgumentException если снимок повреждён
+     */
+    public static KnowledgeBaseGraph decode(ByteBuffer snapshot, Long kbId, long fingerprint, long version) {
+        if (snapshot.remaining() < HEADER_SIZE || snapshot.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a knowledge base graph snapshot");
+        }
+        if (snapshot.getInt() != FORMAT_VERSION || snapshot.getLong() != kbId || snapshot.getLong() != fingerprint) {
+            return null;
+        }
+        int length = snapshot.getInt();
+        int checksum = snapshot.getInt();
+        if (length < 0 || snapshot.remaining() != length) {
+            throw new IllegalArgumentException("Snapshot of knowledge base " + kbId + " is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(snapshot.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IllegalArgumentException("Snapshot of knowledge base " + kbId + " has a wrong checksum");
+        }
+
+        try {
+            int size = snapshot.getInt();
+            long[] ids = new long[size];
+            byte[] nodeTypes = new byte[size];
+            String[] names = new String[size];
+            String[] attributeNames = new String[size];
+            String[] attributeValueAreas = new String[size];
+            String[] activationConditions = new String[size];
+            ActivationCondition[] conditions = new ActivationCondition[size];
+            for (int node = 0; node < size; node++) {
+                ids[node] = snapshot.getLong();
+                nodeTypes[node] = snapshot.get();
+                names[node] = readString(snapshot);
+                attributeNames[node] = readString(snapshot);
+                attributeValueAreas[node] = readString(snapshot);
+                activationConditions[node] = readString(snapshot);
+                conditions[node] = readCondition(snapshot);
+            }
+            Adjacency outgoing = readAdjacency(snapshot, size);
+            Adjacency incoming = readAdjacency(snapshot, size);
+            int typeCount = ConnectionType.values().length;
+            Adjacency[] outgoingByType = new Adjacency[typeCount];
+            Adjacency[] incomingByType = new Adjacency[typeCount];
+            for (int type = 0; type < typeCount; type++) {
+                outgoingByType[type] = readAdjacency(snapshot, size);
+                incomingByType[type] = readAdjacency(snapshot, size);
+            }
+            return new KnowledgeBaseGraph(kbId, version, ids, names, nodeTypes, attributeNames, attributeValueAreas,
+                    activationConditions, conditions, outgoing, incoming, outgoingByType, incomingByType, null);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Snapshot of knowledge base " + kbId + " is malformed", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeCondition(DataOutputStream out, ActivationCondition condition) throws IOException {
+        if (condition instanceof ActivationCondition.Range range) {
+            out.writeByte(RANGE);
+            out.writeLong(range.start());
+            out.writeLong(range.end());
+        } else if (condition instanceof ActivationCondition.Discrete discrete) {
+            out.writeByte(DISCRETE);
+            out.writeInt(discrete.values().size());
+            for (String value : discrete.values()) {
+                writeString(out, value);
+            }
+        } else if (condition instanceof ActivationCondition.Exact exact) {
+            out.writeByte(EXACT);
+            writeString(out, exact.expected());
+        } else {
+            out.writeByte(NO_CONDITION);
+        }
+    }
+
+    private static ActivationCondition readCondition(ByteBuffer in) {
+        byte kind = in.get();
+        switch (kind) {
+            case RANGE:
+                return new ActivationCondition.Range(in.getLong(), in.getLong());
+            case DISCRETE:
+                int count = in.getInt();
+                Set<String> values = new HashSet<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    values.add(readString(in));
+                }
+                return new ActivationCondition.Discrete(Set.copyOf(values));
+            case EXACT:
+                return new ActivationCondition.Exact(readString(in));
+            case NO_CONDITION:
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown activation condition kind " + kind);
+        }
+    }
+
+    private static void writeAdjacency(DataOutputStream out, Adjacency adjacency) throws IOException {
+        for (int offset : adjacency.offsets()) {
+            out.writeInt(offset);
+        }
+        out.writeInt(adjacency.edgeCount());
+        for (int target : adjacency.targets()) {
+            out.writeInt(target);
+        }
+        out.write(adjacency.connectionTypes());
+    }
+
+    private static Adjacency readAdjacency(ByteBuffer in, int size) {
+        int[] offsets = new int[size + 1];
+        in.asIntBuffer().get(offsets);
+        in.position(in.position() + offsets.length * Integer.BYTES);
+        int edgeCount = in.getInt();
+        int[] targets = new int[edgeCount];
+        in.asIntBuffer().get(targets);
+        in.position(in.position() + targets.length * Integer.BYTES);
+        byte[] connectionTypes = new byte[edgeCount];
+        in.get(connectionTypes);
+        return Adjacency.wrap(offsets, targets, connectionTypes);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.domain.listener;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.AllArgsConstructor;
+import org.example.domain.entitiy.Attribute;
+import org.example.domain.entitiy.Node;
+import org.example.domain.entitiy.NodeAttribute;
+import org.example.domain.entitiy.NodeConnection;
+import org.example.domain.entitiy.Section;
+import org.example.domain.event.KnowledgeBaseChangedEvent;
+import org.example.domain.graph.GraphChange;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Публикует изменения узлов, связей и атрибутов узлов как {@link KnowledgeBaseChangedEvent}.
+ * Атрибут может использоваться в нескольких базах знаний, поэтому его изменение сбрасывает все графы.
+ * Изменение раздела сбрасывает граф его базы знаний, а перенос раздела - графы обеих баз.
+ */
+@Component
+@AllArgsConstructor
+public class KnowledgeBaseChangeListener {
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostUpdate
+    public void onUpdate(Object entity) {
+        if (entity instanceof Section section) {
+            Long kbId = section.getKnowledgeBase() == null ? null : section.getKnowledgeBase().getId();
+            evict(kbId);
+            if (!Objects.equals(kbId, section.getPersistedKbId())) {
+                evict(section.getPersistedKbId());
+            }
+        } else {
+            onSave(entity);
+        }
+    }
+
+    @PostPersist
+    public void onSave(Object entity) {
+        if (entity instanceof Node node) {
+            publish(kbIdOf(node), new GraphChange.NodeSaved(node.getId(), node.getName(), node.getNodeType()));
+        } else if (entity instanceof NodeConnection connection) {
+            Long kbId = kbIdOf(connection.getSourceNode());
+            // Связи между разными базами знаний в граф не входят
+            if (Objects.equals(kbId, kbIdOf(connection.getTargetNode()))) {
+                publish(kbId, new GraphChange.ConnectionSaved(connection.getSourceNode().getId(),
+                        connection.getTargetNode().getId(), connection.getConnectionType()));
+            }
+        } else if (entity instanceof NodeAttribute nodeAttribute) {
+            publish(kbIdOf(nodeAttribute.getNode()), new GraphChange.AttributeSaved(nodeAttribute.getNode().getId(),
+                    nodeAttribute.getAttribute().getName(), nodeAttribute.getAttribute().getValueArea(),
+                    nodeAttribute.getActivationCondition()));
+        } else if (entity instanceof Attribute) {
+            eventPublisher.publishEvent(new KnowledgeBaseChangedEvent(null, null));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof Node node) {
+            publish(kbIdOf(node), new GraphChange.NodeRemoved(node.getId()));
+        } else if (entity instanceof NodeConnection connection) {
+            publish(kbIdOf(connection.getSourceNode()), new GraphChange.ConnectionRemoved(
+                    connection.getSourceNode().getId(), connection.getTargetNode().getId()));
+        } else if (entity instanceof NodeAttribute nodeAttribute) {
+            publish(kbIdOf(nodeAttribute.getNode()), new GraphChange.AttributeRemoved(nodeAttribute.getNode().getId()));
+        } else if (entity instanceof Attribute) {
+            eventPublisher.publishEvent(new KnowledgeBaseChangedEvent(null, null));
+        } else if (entity instanceof Section section) {
+            evict(section.getPersistedKbId());
+        }
+    }
+
+    private void evict(Long kbId) {
+        if (kbId != null) {
+            eventPublisher.publishEvent(new KnowledgeBaseChangedEvent(kbId, null));
+        }
+    }
+
+    private void publish(Long kbId, GraphChange change) {
+        if (kbId != null) {
+            eventPublisher.publishEvent(new KnowledgeBaseChangedEvent(kbId, change));
+        }
+    }
+
+    private static Long kbIdOf(Node node) {
+        if (node == null || node.getSection() == null || node.getSection().getKnowledgeBase() == null) {
+            return null;
+        }
+        return node.getSection().getKnowledgeBase().getId();
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.domain.listener;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.AllArgsConstructor;
+import org.example.domain.entitiy.UserKbAccess;
+import org.example.domain.event.UserKbAccessChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@AllArgsConstructor
+public class UserKbAccessListener {
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(UserKbAccess access) {
+        eventPublisher.publishEvent(new UserKbAccessChangedEvent(access.getId().getUserId(), access.getId().getKbId()));
+    }
+}
@@ -1,7 +1,81 @@
 package org.example.repository;
 
 import org.example.domain.entitiy.Node;
+import org.example.domain.types.ConnectionType;
+import org.example.domain.types.NodeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface NodeRepository extends JpaRepository<Node, Long> {
+
+    @Query("select n.id as id, n.name as name, n.nodeType as nodeType " +
+            "from Node n where n.section.knowledgeBase.id = :kbId")
+    List<NodeRow> findNodeRowsByKnowledgeBaseId(@Param("kbId") Long kbId);
+
+    @Query("select na.node.id as nodeId, a.name as attributeName, a.valueArea as attributeValueArea, " +
+            "na.activationCondition as activationCondition " +
+            "from NodeAttribute na join na.attribute a where na.node.section.knowledgeBase.id = :kbId")
+    List<NodeAttributeRow> findNodeAttributeRowsByKnowledgeBaseId(@Param("kbId") Long kbId);
+
+    @Query("select c.sourceNode.id as sourceNodeId, c.targetNode.id as targetNodeId, c.connectionType as connectionType " +
+            "from NodeConnection c where c.sourceNode.section.knowledgeBase.id = :kbId " +
+            "and c.targetNode.section.knowledgeBase.id = :kbId")
+    List<NodeConnectionRow> findNodeConnectionRowsByKnowledgeBaseId(@Param("kbId") Long kbId);
+
+    // Отпечатки строк базы знаний: по ним проверяется, что снимок графа не устарел.
+    // Хэшируется само содержимое строк, перед каждой строкой записана её длина, чтобы границы полей не сдвигались
+    @Query(value = "select count(*) as rowCount, md5(coalesce(string_agg(concat(n.id, ':', n.node_type, ':', " +
+            "length(n.name), ':', n.name), '|' order by n.id), '')) as checksum " +
+            "from nodes n join sections s on s.id = n.section_id where s.kb_id = :kbId", nativeQuery = true)
+    FingerprintRow findNodeFingerprintByKnowledgeBaseId(@Param("kbId") Long kbId);
+
+    @Query(value = "select count(*) as rowCount, md5(coalesce(string_agg(concat(na.node_id, ':', a.id, ':', " +
+            "length(a.name), ':', a.name, ':', length(a.value_area), ':', a.value_area, ':', " +
+            "coalesce(length(na.activation_condition), -1), ':', na.activation_condition), '|' order by na.node_id), '')) as checksum " +
+            "from node_attributes na join attributes a on a.id = na.attribute_id " +
+            "join nodes n on n.id = na.node_id join sections s on s.id = n.section_id where s.kb_id = :kbId", nativeQuery = true)
+    FingerprintRow findNodeAttributeFingerprintByKnowledgeBaseId(@Param("kbId") Long kbId);
+
+    @Query(value = "select count(*) as rowCount, md5(coalesce(string_agg(concat(c.source_node_id, ':', c.target_node_id, ':', " +
+            "c.connection_type), '|' order by c.source_node_id, c.target_node_id), '')) as checksum " +
+            "from node_connections c join nodes sn on sn.id = c.source_node_id join sections ss on ss.id = sn.section_id " +
+            "join nodes tn on tn.id = c.target_node_id join sections ts on ts.id = tn.section_id " +
+            "where ss.kb_id = :kbId and ts.kb_id = :kbId", nativeQuery = true)
+    FingerprintRow findNodeConnectionFingerprintByKnowledgeBaseId(@Param("kbId") Long kbId);
+
+    interface NodeRow {
+        Long getId();
+
+        String getName();
+
+        NodeType getNodeType();
+    }
+
+    interface NodeAttributeRow {
+        Long getNodeId();
+
+        String getAttributeName();
+
+        String getAttributeValueArea();
+
+        String getActivationCondition();
+    }
+
+    interface NodeConnectionRow {
+        Long getSourceNodeId();
+
+        Long getTargetNodeId();
+
+        ConnectionType getConnectionType();
+    }
+
+    interface FingerprintRow {
+        Long getRowCount();
+
+        // md5 в шестнадцатеричном виде
+        String getChecksum();
+    }
 }
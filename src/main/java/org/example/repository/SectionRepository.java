@@ -3,5 +3,8 @@ package org.example.repository;
 import org.example.domain.entitiy.Section;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface SectionRepository extends JpaRepository<Section, Long> {
+    List<Section> findAllByKnowledgeBaseId(Long kbId);
 }
@@ -0,0 +1,8 @@
+package org.example.repository;
+
+import org.example.domain.entitiy.UserKbAccess;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserKbAccessRepository extends JpaRepository<UserKbAccess, UserKbAccess.UserKbAccessId> {
+    boolean existsByIdUserIdAndIdKbId(Long userId, Long kbId);
+}
@@ -0,0 +1,54 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.config.SolverProperties;
+import org.example.domain.event.UserKbAccessChangedEvent;
+import org.example.repository.UserKbAccessRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Решения о доступе пользователя к базе знаний. Кэшируются на короткое время,
+ * изменения {@code user_kb_access} через приложение сбрасывают запись сразу после коммита.
+ */
+@Service
+public class AccessControlService {
+    private final UserKbAccessRepository userKbAccessRepository;
+    private final AsyncCache<AccessKey, Boolean> decisions;
+
+    public AccessControlService(UserKbAccessRepository userKbAccessRepository, SolverProperties solverProperties,
+                                SolverExecutor solverExecutor, MeterRegistry meterRegistry) {
+        this.userKbAccessRepository = userKbAccessRepository;
+        this.decisions = Caffeine.newBuilder()
+                .maximumSize(solverProperties.getAccessCache().getMaximumSize())
+                .expireAfterWrite(solverProperties.getAccessCache().getExpireAfterWrite())
+                .executor(solverExecutor.blockingExecutor())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, decisions, "solver.access");
+    }
+
+    public boolean hasAccess(Long userId, Long kbId) {
+        if (userId == null || kbId == null) {
+            return false;
+        }
+        // Запрос к базе данных выполняется вне блокировки кэша
+        return SolverExecutor.join(decisions.get(new AccessKey(userId, kbId),
+                key -> userKbAccessRepository.existsByIdUserIdAndIdKbId(key.userId(), key.kbId())));
+    }
+
+    public void invalidate(Long userId, Long kbId) {
+        decisions.synchronous().invalidate(new AccessKey(userId, kbId));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccessChanged(UserKbAccessChangedEvent event) {
+        invalidate(event.userId(), event.kbId());
+    }
+
+    private record AccessKey(Long userId, Long kbId) {
+    }
+}
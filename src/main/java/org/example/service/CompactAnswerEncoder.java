@@ -0,0 +1,81 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.domain.DTO.AnswerDto;
+import org.example.domain.DTO.CompactAnswerDto;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Собирает {@link CompactAnswerDto}. Описание узла сериализуется один раз на граф и затем
+ * только копируется в ответы, так что размер и стоимость ответа зависят от числа узлов в нём,
+ * а не от того, сколько гипотез ссылается на один признак.
+ * Фрагменты живут, пока граф используется: ключи кэша слабые.
+ */
+@Component
+public class CompactAnswerEncoder {
+    private final ObjectMapper objectMapper;
+    private final Cache<KnowledgeBaseGraph, CompactAnswerDto.EncodedNode[]> fragments = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    public CompactAnswerEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public CompactAnswerDto encode(KnowledgeBaseGraph graph, List<AnswerDto> answers) {
+        CompactAnswerDto.EncodedNode[] encodedNodes = fragments.get(graph,
+                ignored -> new CompactAnswerDto.EncodedNode[graph.size()]);
+        BitSet listed = new BitSet(graph.size());
+        List<CompactAnswerDto.EncodedNode> nodes = new ArrayList<>();
+        List<CompactAnswerDto.Solution> solutions = new ArrayList<>(answers.size());
+
+        for (AnswerDto answer : answers) {
+            addNode(graph, encodedNodes, listed, nodes, answer.getId());
+            List<Long> arguments = new ArrayList<>(answer.getArguments().size());
+            for (AnswerDto argument : answer.getArguments()) {
+                addNode(graph, encodedNodes, listed, nodes, argument.getId());
+                arguments.add(argument.getId());
+            }
+            solutions.add(new CompactAnswerDto.Solution(answer.getId(), arguments));
+        }
+        return new CompactAnswerDto(nodes, solutions);
+    }
+
+    private void addNode(KnowledgeBaseGraph graph, CompactAnswerDto.EncodedNode[] encodedNodes, BitSet listed,
+                         List<CompactAnswerDto.EncodedNode> nodes, Long id) {
+        int node = graph.indexOf(id);
+        if (node < 0 || listed.get(node)) {
+            return;
+        }
+        listed.set(node);
+        // Гонка при заполнении безопасна: фрагмент одинаков у всех потоков, а его final-поле видно без синхронизации
+        CompactAnswerDto.EncodedNode encoded = encodedNodes[node];
+        if (encoded == null) {
+            encoded = encodeNode(graph, node);
+            encodedNodes[node] = encoded;
+        }
+        nodes.add(encoded);
+    }
+
+    private CompactAnswerDto.EncodedNode encodeNode(KnowledgeBaseGraph graph, int node) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", graph.getId(node));
+        fields.put("name", graph.getName(node));
+        fields.put("type", graph.getNodeType(node));
+        try {
+            return new CompactAnswerDto.EncodedNode(objectMapper.writeValueAsString(fields));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
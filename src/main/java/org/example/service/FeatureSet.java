@@ -0,0 +1,90 @@
+package org.example.service;
+
+import java.util.Arrays;
+
+/**
+ * Множество признаков как битовая маска по порядковым номерам признаков графа.
+ * Все операции над множествами выполняются по 64 признака за шаг.
+ */
+public final class FeatureSet {
+    private final long[] words;
+
+    public FeatureSet(int featureCount) {
+        this.words = new long[(featureCount + 63) >>> 6];
+    }
+
+    public boolean add(int feature) {
+        long word = words[feature >>> 6];
+        words[feature >>> 6] = word | (1L << feature);
+        return words[feature >>> 6] != word;
+    }
+
+    public boolean contains(int feature) {
+        return (words[feature >>> 6] & (1L << feature)) != 0;
+    }
+
+    public boolean addAll(FeatureSet other) {
+        boolean changed = false;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i] | other.words[i];
+            changed |= word != words[i];
+            words[i] = word;
+        }
+        return changed;
+    }
+
+    public boolean containsAll(FeatureSet other) {
+        for (int i = 0; i < words.length; i++) {
+            if ((other.words[i] & ~words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int nextFeature(int from) {
+        int wordIndex = from >>> 6;
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(words, ((FeatureSet) o).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.SolverProperties;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.example.domain.graph.KnowledgeBaseGraphSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Файлы снимков скомпилированных графов, по одному на базу знаний.
+ * Снимок читается через отображение файла в память; повреждённый или устаревший снимок
+ * пропускается, и граф загружается из базы данных.
+ * Снимки записываются в отдельном потоке, чтобы загрузка графа не ждала файлового ввода-вывода.
+ */
+@Slf4j
+@Component
+public class GraphSnapshotStore {
+    private final boolean enabled;
+    private final Path directory;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("graph-snapshot-", 0).daemon(true).factory());
+
+    public GraphSnapshotStore(SolverProperties solverProperties) {
+        this.enabled = solverProperties.getSnapshot().isEnabled();
+        this.directory = solverProperties.getSnapshot().getDirectory();
+    }
+
+    public KnowledgeBaseGraph read(Long kbId, long fingerprint, long version) {
+        if (!enabled) {
+            return null;
+        }
+        Path path = pathOf(kbId);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            KnowledgeBaseGraph graph = KnowledgeBaseGraphSnapshot.decode(snapshot, kbId, fingerprint, version);
+            if (graph == null) {
+                log.info("Snapshot of knowledge base {} is stale, loading it from the database", kbId);
+            }
+            return graph;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Cannot read snapshot of knowledge base {}, loading it from the database", kbId, e);
+            delete(kbId);
+            return null;
+        }
+    }
+
+    /**
+     * Записывает снимок в потоке записи снимков. Если после записи {@code stale} вернёт {@code true},
+     * снимок удаляется: изменение, пришедшее во время записи, могло не увидеть новый файл.
+     */
+    public CompletableFuture<Void> writeAsync(KnowledgeBaseGraph graph, long fingerprint, BooleanSupplier stale) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+            write(graph, fingerprint);
+            if (stale.getAsBoolean()) {
+                delete(graph.getKbId());
+            }
+        }, writer);
+    }
+
+    public void write(KnowledgeBaseGraph graph, long fingerprint) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            // Запись во временный файл и переименование: читатель не увидит недописанный снимок
+            Path temporary = Files.createTempFile(directory, "kb-" + graph.getKbId() + "-", ".tmp");
+            try {
+                Files.write(temporary, KnowledgeBaseGraphSnapshot.encode(graph, fingerprint));
+                Files.move(temporary, pathOf(graph.getKbId()),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot write snapshot of knowledge base {}", graph.getKbId(), e);
+        }
+    }
+
+    public void delete(Long kbId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(pathOf(kbId));
+        } catch (IOException e) {
+            log.warn("Cannot delete snapshot of knowledge base {}", kbId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    private Path pathOf(Long kbId) {
+        return directory.resolve("kb-" + kbId + ".snapshot");
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.service;
+
+import lombok.Getter;
+import org.example.domain.DTO.SolveTraceDto;
+import org.example.domain.graph.KnowledgeBaseGraph;
+
+import java.util.BitSet;
+
+/**
+ * Состояние вывода одного запроса. Граф базы знаний разделяется между запросами
+ * и не изменяется, всё, что меняется во время решения, хранится здесь.
+ */
+@Getter
+public class InferenceContext {
+    private final KnowledgeBaseGraph graph;
+    private final SolveStatistics statistics;
+    // null, если трасса не запрошена
+    private final SolveTraceDto trace;
+    private final BitSet activated;
+    private final BitSet activatedFeatures;
+    private final BitSet inactiveFeatures;
+    private final BitSet activatedHypotheses;
+    private final BitSet solutions;
+    private final BitSet possibleArguments;
+    private final FeatureSet[] arguments;
+    private final BitSet reached;
+    private final int[] activeInputs;
+    private final int[] activationOrder;
+    private int activationCount;
+    private int propagatedCount;
+
+    public InferenceContext(KnowledgeBaseGraph graph, SolveStatistics statistics, SolveTraceDto trace) {
+        this.graph = graph;
+        this.statistics = statistics;
+        this.trace = trace;
+        this.activated = new BitSet(graph.size());
+        this.activatedFeatures = new BitSet(graph.size());
+        this.inactiveFeatures = new BitSet(graph.size());
+        this.activatedHypotheses = new BitSet(graph.size());
+        this.solutions = new BitSet(graph.size());
+        this.possibleArguments = new BitSet(graph.size());
+        this.arguments = new FeatureSet[graph.size()];
+        this.reached = new BitSet(graph.size());
+        this.activeInputs = new int[graph.size()];
+        this.activationOrder = new int[graph.size()];
+    }
+
+    private InferenceContext(InferenceContext source) {
+        this.graph = source.graph;
+        this.statistics = source.statistics;
+        this.trace = source.trace;
+        this.activated = (BitSet) source.activated.clone();
+        this.activatedFeatures = source.activatedFeatures;
+        this.inactiveFeatures = source.inactiveFeatures;
+        this.activatedHypotheses = (BitSet) source.activatedHypotheses.clone();
+        this.solutions = (BitSet) source.solutions.clone();
+        this.possibleArguments = source.possibleArguments;
+        this.arguments = source.arguments;
+        this.reached = source.reached;
+        this.activeInputs = source.activeInputs;
+        this.activationOrder = source.activationOrder;
+        this.activationCount = source.activationCount;
+        this.propagatedCount = source.propagatedCount;
+    }
+
+    /**
+     * Копия для шагов 4-8, после которых вывод ещё будет продолжен. Копируются только множества,
+     * из которых сокращение исключает гипотезы, остальное состояние разделяется с исходным контекстом.
+     */
+    public InferenceContext copyForReduction() {
+        return new InferenceContext(this);
+    }
+
+    /**
+     * Помечает узел активным и ставит его в очередь распространения.
+     * Каждый узел попадает в очередь не более одного раза за всё время вывода.
+     */
+    public boolean activate(int node) {
+        if (activated.get(node)) {
+            return false;
+        }
+        activated.set(node);
+        activationOrder[activationCount++] = node;
+        return true;
+    }
+
+    boolean hasPendingActivations() {
+        return propagatedCount < activationCount;
+    }
+
+    int nextPendingActivation() {
+        return activationOrder[propagatedCount++];
+    }
+
+    /**
+     * Переносит результат распространения, выполненного в {@code part} над другими компонентами графа.
+     * Компоненты не пересекаются, поэтому счётчики складываются, а множества аргументов переносятся как есть.
+     */
+    void absorb(InferenceContext part) {
+        for (int position = 0; position < part.activationCount; position++) {
+            activate(part.activationOrder[position]);
+        }
+        propagatedCount = activationCount;
+        reached.or(part.reached);
+        activatedHypotheses.or(part.activatedHypotheses);
+        solutions.or(part.solutions);
+        for (int node = 0; node < activeInputs.length; node++) {
+            activeInputs[node] += part.activeInputs[node];
+            if (part.arguments[node] != null) {
+                arguments[node] = part.arguments[node];
+            }
+        }
+        statistics.merge(part.statistics);
+    }
+
+    public FeatureSet getArguments(int node) {
+        FeatureSet nodeArguments = arguments[node];
+        if (nodeArguments == null) {
+            nodeArguments = new FeatureSet(graph.featureCount());
+            arguments[node] = nodeArguments;
+        }
+        return nodeArguments;
+    }
+}
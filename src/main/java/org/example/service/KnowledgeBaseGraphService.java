@@ -0,0 +1,201 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.SolverProperties;
+import org.example.domain.DTO.KnowledgeBaseDTO;
+import org.example.domain.event.KnowledgeBaseChangedEvent;
+import org.example.domain.graph.GraphChange;
+import org.example.domain.graph.GraphOptimizer;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранит скомпилированные графы баз знаний.
+ * У каждой базы знаний есть счётчик версий, который растёт с каждым изменением после коммита
+ * и с каждой загрузкой графа из базы данных.
+ * Изменения копятся в очереди и применяются к графу при следующем обращении к нему:
+ * новый граф собирается из копии старого и заменяет его целиком, а уже начатые решения
+ * дорабатывают на прежнем графе.
+ * Загрузка выполняется в {@link SolverExecutor#blockingExecutor()}, а изменения применяются под блокировкой
+ * базы знаний, а не внутри {@code compute} кэша, так что ожидающие виртуальные потоки не закрепляют потоки-носители.
+ * Граф, загруженный из базы данных, сохраняется в снимок, с которого он читается при следующем запуске,
+ * пока отпечаток данных в базе данных не изменится. Любое изменение базы знаний удаляет её снимок.
+ * В кэш попадает граф после {@link GraphOptimizer}; снимок и изменения относятся к исходному графу,
+ * который хранится вместе с ним, поэтому кэш ограничен суммарным числом узлов обоих графов.
+ */
+@Slf4j
+@Service
+public class KnowledgeBaseGraphService {
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final NodeService nodeService;
+    private final GraphSnapshotStore graphSnapshotStore;
+    private final SolverMetrics solverMetrics;
+    private final boolean optimizerEnabled;
+    private final AsyncLoadingCache<Long, KnowledgeBaseGraph> graphs;
+    private final ConcurrentMap<Long, KnowledgeBaseVersion> versions = new ConcurrentHashMap<>();
+
+    public KnowledgeBaseGraphService(KnowledgeBaseService knowledgeBaseService,
+                                     NodeService nodeService,
+                                     GraphSnapshotStore graphSnapshotStore,
+                                     SolverMetrics solverMetrics,
+                                     SolverProperties solverProperties,
+                                     SolverExecutor solverExecutor,
+                                     MeterRegistry meterRegistry) {
+        this.knowledgeBaseService = knowledgeBaseService;
+        this.nodeService = nodeService;
+        this.graphSnapshotStore = graphSnapshotStore;
+        this.solverMetrics = solverMetrics;
+        this.optimizerEnabled = solverProperties.getOptimizer().isEnabled();
+        this.graphs = Caffeine.newBuilder()
+                .maximumWeight(solverProperties.getGraphCache().getMaximumWeight())
+                .weigher((Long kbId, KnowledgeBaseGraph graph) -> Math.max(1, graph.retainedSize()))
+                .expireAfterWrite(solverProperties.getGraphCache().getExpireAfterWrite())
+                .executor(solverExecutor.blockingExecutor())
+                .recordStats()
+                .buildAsync(this::loadGraph);
+        CaffeineCacheMetrics.monitor(meterRegistry, graphs, "solver.graphs");
+    }
+
+    public KnowledgeBaseGraph getGraph(Long kbId) {
+        KnowledgeBaseGraph graph = SolverExecutor.join(graphs.get(kbId));
+        KnowledgeBaseVersion version = version(kbId);
+        if (graph.getVersion() == version.counter().get()) {
+            return graph;
+        }
+        version.lock().lock();
+        try {
+            CompletableFuture<KnowledgeBaseGraph> current = graphs.getIfPresent(kbId);
+            if (current != null) {
+                graph = SolverExecutor.join(current);
+                if (graph.getVersion() == version.counter().get()) {
+                    return graph;
+                }
+                KnowledgeBaseGraph patched = applyChanges(graph);
+                if (patched != null) {
+                    graphs.asMap().replace(kbId, current, CompletableFuture.completedFuture(patched));
+                    return patched;
+                }
+                // Изменения применить не удалось: граф удаляется из кэша и загружается из базы данных заново
+                graphs.asMap().remove(kbId, current);
+            }
+        } finally {
+            version.lock().unlock();
+        }
+        return SolverExecutor.join(graphs.get(kbId));
+    }
+
+    /**
+     * Сбрасывает граф базы знаний, при следующем обращении он будет загружен из базы данных заново.
+     */
+    public void evict(Long kbId) {
+        KnowledgeBaseVersion version = version(kbId);
+        // Под блокировкой: применение изменений не должно выдать старый граф за новую версию
+        version.lock().lock();
+        try {
+            version.counter().incrementAndGet();
+            graphSnapshotStore.delete(kbId);
+            graphs.synchronous().invalidate(kbId);
+        } finally {
+            version.lock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKnowledgeBaseChanged(KnowledgeBaseChangedEvent event) {
+        if (event.kbId() == null) {
+            versions.keySet().forEach(this::evict);
+            return;
+        }
+        if (event.change() == null) {
+            evict(event.kbId());
+            return;
+        }
+        KnowledgeBaseVersion version = version(event.kbId());
+        // Сначала изменение попадает в очередь, затем растёт версия: увидевший новую версию найдёт и изменение
+        version.changes().add(event.change());
+        version.counter().incrementAndGet();
+        graphSnapshotStore.delete(event.kbId());
+    }
+
+    private KnowledgeBaseGraph loadGraph(Long kbId) {
+        KnowledgeBaseVersion version = version(kbId);
+        // Загрузка из базы данных - новая версия: кроме изменений через приложение граф мог получить
+        // правки из другого экземпляра или прямым SQL, и ответы по старому графу использоваться не должны
+        long loadedVersion = version.counter().incrementAndGet();
+        // Всё, что уже закоммичено, будет прочитано из базы данных
+        version.changes().clear();
+        long started = System.nanoTime();
+        KnowledgeBaseDTO knowledgeBaseDTO = knowledgeBaseService.getKnowledgeBaseById(kbId);
+
+        long fingerprint = nodeService.getKnowledgeBaseFingerprint(knowledgeBaseDTO.getId());
+        KnowledgeBaseGraph graph = graphSnapshotStore.read(knowledgeBaseDTO.getId(), fingerprint, loadedVersion);
+        if (graph != null) {
+            KnowledgeBaseGraph optimized = optimize(graph);
+            solverMetrics.recordGraphLoad(optimized, "snapshot", System.nanoTime() - started);
+            return optimized;
+        }
+        KnowledgeBaseGraph loaded = nodeService.getKnowledgeBaseGraph(knowledgeBaseDTO.getId(), loadedVersion);
+        KnowledgeBaseGraph optimized = optimize(loaded);
+        solverMetrics.recordGraphLoad(optimized, "database", System.nanoTime() - started);
+        graphSnapshotStore.writeAsync(loaded, fingerprint, () -> version.counter().get() != loadedVersion);
+        return optimized;
+    }
+
+    private KnowledgeBaseGraph applyChanges(KnowledgeBaseGraph graph) {
+        KnowledgeBaseVersion version = version(graph.getKbId());
+        long targetVersion = version.counter().get();
+        if (graph.getVersion() == targetVersion) {
+            return graph;
+        }
+        List<GraphChange> changes = new ArrayList<>();
+        for (GraphChange change = version.changes().poll(); change != null; change = version.changes().poll()) {
+            changes.add(change);
+        }
+        long started = System.nanoTime();
+        try {
+            KnowledgeBaseGraph.Builder builder = graph.toBuilder().version(targetVersion);
+            changes.forEach(change -> change.applyTo(builder));
+            KnowledgeBaseGraph patched = optimize(builder.build());
+            solverMetrics.recordGraphLoad(patched, "patch", System.nanoTime() - started);
+            return patched;
+        } catch (RuntimeException e) {
+            // Изменения уже извлечены из очереди, поэтому граф нельзя оставлять в кэше
+            log.warn("Cannot apply {} changes to knowledge base {}, reloading it", changes.size(), graph.getKbId(), e);
+            return null;
+        }
+    }
+
+    private KnowledgeBaseGraph optimize(KnowledgeBaseGraph graph) {
+        if (!optimizerEnabled) {
+            return graph;
+        }
+        GraphOptimizer.Result result = GraphOptimizer.optimize(graph);
+        if (result.report().changed()) {
+            log.info("Knowledge base {} graph optimized: {}", graph.getKbId(), result.report());
+        }
+        return result.graph();
+    }
+
+    private KnowledgeBaseVersion version(Long kbId) {
+        return versions.computeIfAbsent(kbId, id -> new KnowledgeBaseVersion(new AtomicLong(),
+                new ConcurrentLinkedQueue<>(), new ReentrantLock()));
+    }
+
+    private record KnowledgeBaseVersion(AtomicLong counter, Queue<GraphChange> changes, ReentrantLock lock) {
+    }
+}
@@ -0,0 +1,321 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.config.SolverProperties;
+import org.example.domain.DTO.KnowledgeBaseRecordDto;
+import org.example.domain.event.UserKbAccessChangedEvent;
+import org.example.domain.types.AccessLevel;
+import org.example.domain.types.AttributeType;
+import org.example.domain.types.ConnectionType;
+import org.example.domain.types.NodeType;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Загрузка и выгрузка базы знаний целиком в формате {@link KnowledgeBaseRecordDto}.
+ * Обе операции идут потоком и не строят сущности JPA: загрузка пишет пакетами JDBC
+ * с идентификаторами, выделенными блоками из последовательностей таблиц,
+ * выгрузка читает строки курсором и сразу пишет их в ответ.
+ */
+@Service
+public class KnowledgeBaseTransferService {
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SimpleJdbcInsert knowledgeBaseInsert;
+    private final int batchSize;
+
+    public KnowledgeBaseTransferService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                        ApplicationEventPublisher eventPublisher, SolverProperties solverProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = solverProperties.getTransfer().getBatchSize();
+        this.cursorTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursorTemplate.setFetchSize(batchSize);
+        this.knowledgeBaseInsert = new SimpleJdbcInsert(jdbcTemplate).withTableName("knowledge_bases")
+                .usingColumns("name", "description").usingGeneratedKeyColumns("id");
+    }
+
+    /**
+     * Создаёт базу знаний из записей {@code input} и даёт пользователю право записи в неё.
+     * Загрузка выполняется одной транзакцией: при ошибке не остаётся ничего.
+     *
+     * @return идентификатор новой базы знаний
+     * @throws IllegalArgumentException если записи нарушают формат
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public Long importKnowledgeBase(Long userId, InputStream input) throws IOException {
+        KnowledgeBaseImport knowledgeBaseImport = new KnowledgeBaseImport();
+        try (JsonParser records = objectMapper.createParser(input)) {
+            while (records.nextToken() != null) {
+                knowledgeBaseImport.add(objectMapper.readValue(records, KnowledgeBaseRecordDto.class));
+            }
+        }
+        Long kbId = knowledgeBaseImport.finish();
+
+        jdbcTemplate.update("insert into user_kb_access (user_id, kb_id, access_level) values (?, ?, ?)",
+                userId, kbId, AccessLevel.WRITE.name());
+        eventPublisher.publishEvent(new UserKbAccessChangedEvent(userId, kbId));
+        return kbId;
+    }
+
+    /**
+     * Пишет базу знаний в {@code output}. Возвращает {@code false}, ничего не записав, если базы знаний нет.
+     */
+    @Transactional(readOnly = true)
+    public boolean exportKnowledgeBase(Long kbId, OutputStream output) throws IOException {
+        List<KnowledgeBaseRecordDto> knowledgeBase = jdbcTemplate.query(
+                "select name, description from knowledge_bases where id = ?",
+                (row, rowNumber) -> KnowledgeBaseRecordDto.knowledgeBase(row.getString("name"), row.getString("description")),
+                kbId);
+        if (knowledgeBase.isEmpty()) {
+            return false;
+        }
+
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator records = objectMapper.createGenerator(output)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null)) {
+            write(writer, records, knowledgeBase.get(0));
+            export(writer, records, "select distinct a.id, a.name, a.type, a.value_area from attributes a " +
+                            "join node_attributes na on na.attribute_id = a.id join nodes n on n.id = na.node_id " +
+                            "join sections s on s.id = n.section_id where s.kb_id = ?",
+                    (row, rowNumber) -> KnowledgeBaseRecordDto.attribute(row.getLong("id"), row.getString("name"),
+                            AttributeType.valueOf(row.getString("type")), row.getString("value_area")),
+                    kbId);
+            export(writer, records, "select id, name from sections where kb_id = ?",
+                    (row, rowNumber) -> KnowledgeBaseRecordDto.section(row.getLong("id"), row.getString("name")),
+                    kbId);
+            export(writer, records, "select n.id, n.section_id, n.name, n.node_type from nodes n " +
+                            "join sections s on s.id = n.section_id where s.kb_id = ?",
+                    (row, rowNumber) -> KnowledgeBaseRecordDto.node(row.getLong("id"), row.getLong("section_id"),
+                            row.getString("name"), NodeType.valueOf(row.getString("node_type"))),
+                    kbId);
+            export(writer, records, "select na.node_id, na.attribute_id, na.activation_condition from node_attributes na " +
+                            "join nodes n on n.id = na.node_id join sections s on s.id = n.section_id where s.kb_id = ?",
+                    (row, rowNumber) -> KnowledgeBaseRecordDto.nodeAttribute(row.getLong("node_id"),
+                            row.getLong("attribute_id"), row.getString("activation_condition")),
+                    kbId);
+            // Как и в графе, выгружаются только связи внутри базы знаний
+            export(writer, records, "select c.source_node_id, c.target_node_id, c.connection_type from node_connections c " +
+                            "join nodes source on source.id = c.source_node_id join sections source_section on source_section.id = source.section_id " +
+                            "join nodes target on target.id = c.target_node_id join sections target_section on target_section.id = target.section_id " +
+                            "where source_section.kb_id = ? and target_section.kb_id = ?",
+                    (row, rowNumber) -> KnowledgeBaseRecordDto.connection(row.getLong("source_node_id"),
+                            row.getLong("target_node_id"), ConnectionType.valueOf(row.getString("connection_type"))),
+                    kbId, kbId);
+        }
+        return true;
+    }
+
+    private void export(ObjectWriter writer, JsonGenerator records, String sql,
+                        RowMapper<KnowledgeBaseRecordDto> mapper, Object... args) {
+        cursorTemplate.query(sql, (RowCallbackHandler) row -> write(writer, records, mapper.mapRow(row, 0)), args);
+    }
+
+    private static void write(ObjectWriter writer, JsonGenerator records, KnowledgeBaseRecordDto record) {
+        try {
+            writer.writeValue(records, record);
+            records.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Состояние одной загрузки: соответствие идентификаторов файла и базы данных и ещё не записанные записи.
+     * Записи пишутся пакетом, когда записей одного типа набирается {@code batchSize}. Идентификаторы
+     * выделяются из последовательностей при записи пакета ровно по числу его строк, ссылки на записи
+     * того же пакета разрешаются после этого: строки таблиц, на которые ссылаются, пишутся раньше.
+     * Атрибут, совпадающий по имени, типу и области значений с уже существующим, не создаётся заново.
+     */
+    private class KnowledgeBaseImport {
+        // Идентификаторы файла; значение null, пока запись не записана в базу данных
+        private final Map<Long, Long> attributeIdMap = new HashMap<>();
+        private final Map<Long, Long> sectionIdMap = new HashMap<>();
+        private final Map<Long, Long> nodeIdMap = new HashMap<>();
+        private final List<KnowledgeBaseRecordDto> attributes = new ArrayList<>();
+        private final List<KnowledgeBaseRecordDto> sections = new ArrayList<>();
+        private final List<KnowledgeBaseRecordDto> nodes = new ArrayList<>();
+        private final List<KnowledgeBaseRecordDto> nodeAttributes = new ArrayList<>();
+        private final List<KnowledgeBaseRecordDto> connections = new ArrayList<>();
+        private Long kbId;
+
+        void add(KnowledgeBaseRecordDto record) {
+            if (record.getType() == null) {
+                throw new IllegalArgumentException("Record without type");
+            }
+            if (kbId == null && !KnowledgeBaseRecordDto.KNOWLEDGE_BASE.equals(record.getType())) {
+                throw new IllegalArgumentException("The first record must be " + KnowledgeBaseRecordDto.KNOWLEDGE_BASE);
+            }
+
+            switch (record.getType()) {
+                case KnowledgeBaseRecordDto.KNOWLEDGE_BASE -> {
+                    if (kbId != null) {
+                        throw new IllegalArgumentException("Only one " + KnowledgeBaseRecordDto.KNOWLEDGE_BASE + " record is allowed");
+                    }
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("name", record.getName());
+                    row.put("description", record.getDescription());
+                    kbId = knowledgeBaseInsert.executeAndReturnKey(row).longValue();
+                }
+                case KnowledgeBaseRecordDto.ATTRIBUTE -> declare(attributeIdMap, attributes, record);
+                case KnowledgeBaseRecordDto.SECTION -> declare(sectionIdMap, sections, record);
+                case KnowledgeBaseRecordDto.NODE -> {
+                    checkDeclared(sectionIdMap, record.getSection(), "section");
+                    declare(nodeIdMap, nodes, record);
+                }
+                case KnowledgeBaseRecordDto.NODE_ATTRIBUTE -> {
+                    checkDeclared(nodeIdMap, record.getNode(), "node");
+                    checkDeclared(attributeIdMap, record.getAttribute(), "attribute");
+                    nodeAttributes.add(record);
+                }
+                case KnowledgeBaseRecordDto.CONNECTION -> {
+                    checkDeclared(nodeIdMap, record.getSource(), "node");
+                    checkDeclared(nodeIdMap, record.getTarget(), "node");
+                    connections.add(record);
+                }
+                default -> throw new IllegalArgumentException("Unknown record type " + record.getType());
+            }
+
+            if (attributes.size() >= batchSize || sections.size() >= batchSize || nodes.size() >= batchSize
+                    || nodeAttributes.size() >= batchSize || connections.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        Long finish() {
+            if (kbId == null) {
+                throw new IllegalArgumentException("No " + KnowledgeBaseRecordDto.KNOWLEDGE_BASE + " record");
+            }
+            flush();
+            return kbId;
+        }
+
+        private void flush() {
+            flushAttributes();
+            flush("insert into sections (id, kb_id, name) values (?, ?, ?)", "sections_id_seq", sections, sectionIdMap,
+                    (record, id) -> new Object[]{id, kbId, record.getName()});
+            flush("insert into nodes (id, section_id, name, node_type) values (?, ?, ?, ?)", "nodes_id_seq", nodes, nodeIdMap,
+                    (record, id) -> new Object[]{id, sectionIdMap.get(record.getSection()), record.getName(),
+                            record.getNodeType() == null ? null : record.getNodeType().name()});
+            flush("insert into node_attributes (node_id, attribute_id, activation_condition) values (?, ?, ?)", nodeAttributes,
+                    record -> new Object[]{nodeIdMap.get(record.getNode()), attributeIdMap.get(record.getAttribute()),
+                            record.getActivationCondition()});
+            flush("insert into node_connections (source_node_id, target_node_id, connection_type) values (?, ?, ?)", connections,
+                    record -> new Object[]{nodeIdMap.get(record.getSource()), nodeIdMap.get(record.getTarget()),
+                            record.getConnectionType() == null ? null : record.getConnectionType().name()});
+        }
+
+        // Существующие атрибуты находятся одним запросом, новые записываются пакетом
+        private void flushAttributes() {
+            if (attributes.isEmpty()) {
+                return;
+            }
+            Map<AttributeKey, Long> known = new HashMap<>();
+            List<String> names = attributes.stream().map(KnowledgeBaseRecordDto::getName).distinct().toList();
+            jdbcTemplate.query("select id, name, type, value_area from attributes where name in (" +
+                            String.join(", ", Collections.nCopies(names.size(), "?")) + ") order by id",
+                    (RowCallbackHandler) row -> known.putIfAbsent(new AttributeKey(row.getString("name"),
+                            row.getString("type"), row.getString("value_area")), row.getLong("id")),
+                    names.toArray());
+
+            Map<AttributeKey, KnowledgeBaseRecordDto> created = new LinkedHashMap<>();
+            for (KnowledgeBaseRecordDto record : attributes) {
+                AttributeKey key = AttributeKey.of(record);
+                if (!known.containsKey(key)) {
+                    created.putIfAbsent(key, record);
+                }
+            }
+            List<Long> ids = nextIds("attributes_id_seq", created.size());
+            List<Object[]> rows = new ArrayList<>(created.size());
+            int position = 0;
+            for (Map.Entry<AttributeKey, KnowledgeBaseRecordDto> entry : created.entrySet()) {
+                Long id = ids.get(position++);
+                known.put(entry.getKey(), id);
+                rows.add(new Object[]{id, entry.getValue().getName(), entry.getKey().type(), entry.getValue().getValueArea()});
+            }
+            for (KnowledgeBaseRecordDto record : attributes) {
+                attributeIdMap.put(record.getId(), known.get(AttributeKey.of(record)));
+            }
+            attributes.clear();
+            flush("insert into attributes (id, name, type, value_area) values (?, ?, ?, ?)", rows, row -> row);
+        }
+
+        private void flush(String sql, String sequence, List<KnowledgeBaseRecordDto> records, Map<Long, Long> idMap,
+                           BiFunction<KnowledgeBaseRecordDto, Long, Object[]> toRow) {
+            List<Long> ids = nextIds(sequence, records.size());
+            List<Object[]> rows = new ArrayList<>(records.size());
+            for (int position = 0; position < records.size(); position++) {
+                KnowledgeBaseRecordDto record = records.get(position);
+                idMap.put(record.getId(), ids.get(position));
+                rows.add(toRow.apply(record, ids.get(position)));
+            }
+            records.clear();
+            flush(sql, rows, row -> row);
+        }
+
+        private <T> void flush(String sql, List<T> records, Function<T, Object[]> toRow) {
+            if (!records.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, records.stream().map(toRow).toList());
+                records.clear();
+            }
+        }
+
+        private static void declare(Map<Long, Long> ids, List<KnowledgeBaseRecordDto> records, KnowledgeBaseRecordDto record) {
+            if (record.getId() == null || ids.containsKey(record.getId())) {
+                throw new IllegalArgumentException("Missing or repeated " + record.getType() + " id " + record.getId());
+            }
+            ids.put(record.getId(), null);
+            records.add(record);
+        }
+
+        private static void checkDeclared(Map<Long, Long> ids, Long id, String kind) {
+            if (!ids.containsKey(id)) {
+                throw new IllegalArgumentException("Unknown " + kind + " " + id);
+            }
+        }
+    }
+
+    /**
+     * Выделяет из последовательности ровно {@code count} идентификаторов одним запросом.
+     */
+    private List<Long> nextIds(String sequence, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList("select nextval('" + sequence + "') from generate_series(1, ?)",
+                Long.class, count);
+    }
+
+    private record AttributeKey(String name, String type, String valueArea) {
+        static AttributeKey of(KnowledgeBaseRecordDto record) {
+            return new AttributeKey(record.getName(),
+                    record.getAttributeType() == null ? null : record.getAttributeType().name(), record.getValueArea());
+        }
+    }
+}
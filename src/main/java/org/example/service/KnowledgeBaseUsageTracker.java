@@ -0,0 +1,90 @@
+package org.example.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.SolverProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Считает решения по каждой базе знаний и сохраняет счётчики при остановке,
+ * чтобы следующий запуск знал, какие базы знаний прогревать.
+ * Счётчики прошлых запусков при чтении делятся пополам, поэтому недавнее использование весит больше.
+ */
+@Slf4j
+@Component
+public class KnowledgeBaseUsageTracker {
+    private final Path usageFile;
+    private final ConcurrentMap<Long, LongAdder> usage = new ConcurrentHashMap<>();
+
+    public KnowledgeBaseUsageTracker(SolverProperties solverProperties) {
+        this.usageFile = solverProperties.getWarmup().getUsageFile();
+    }
+
+    public void record(Long kbId) {
+        usage.computeIfAbsent(kbId, id -> new LongAdder()).increment();
+    }
+
+    public List<Long> mostUsed(int limit) {
+        return usage.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Long, LongAdder> entry) -> entry.getValue().sum()).reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @PostConstruct
+    public void load() {
+        Properties persisted = new Properties();
+        try (Reader reader = Files.newBufferedReader(usageFile)) {
+            persisted.load(reader);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            log.warn("Cannot read knowledge base usage from {}", usageFile, e);
+            return;
+        }
+        persisted.forEach((kbId, count) -> {
+            try {
+                usage.computeIfAbsent(Long.valueOf((String) kbId), id -> new LongAdder())
+                        .add(Long.parseLong((String) count) / 2);
+            } catch (NumberFormatException e) {
+                log.warn("Skipping malformed usage entry {}={}", kbId, count);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void save() {
+        Properties persisted = new Properties();
+        usage.forEach((kbId, count) -> {
+            if (count.sum() > 0) {
+                persisted.setProperty(kbId.toString(), Long.toString(count.sum()));
+            }
+        });
+        try {
+            if (usageFile.getParent() != null) {
+                Files.createDirectories(usageFile.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(usageFile)) {
+                persisted.store(writer, "Solves per knowledge base");
+            }
+        } catch (IOException e) {
+            log.warn("Cannot write knowledge base usage to {}", usageFile, e);
+        }
+    }
+}
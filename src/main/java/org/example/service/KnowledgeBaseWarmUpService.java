@@ -0,0 +1,88 @@
+package org.example.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.SolverProperties;
+import org.example.domain.DTO.AnswerDto;
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.graph.ActivationCondition;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Прогрев при запуске: загружает графы заданных и самых используемых баз знаний
+ * и решает на них случайные случаи, чтобы JIT скомпилировал решатель до первых настоящих запросов.
+ * Результаты синтетических решений в кэш ответов не попадают.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class KnowledgeBaseWarmUpService {
+    // Сколько признаков задаётся в одном синтетическом случае
+    private static final int PARAMETERS_PER_CASE = 64;
+
+    private KnowledgeBaseGraphService knowledgeBaseGraphService;
+    private KnowledgeBaseUsageTracker knowledgeBaseUsageTracker;
+    private QuerySolver querySolver;
+    private SolverProperties solverProperties;
+
+    public void warmUp() {
+        SolverProperties.Warmup properties = solverProperties.getWarmup();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Set<Long> knowledgeBases = new LinkedHashSet<>(properties.getKnowledgeBases());
+        knowledgeBases.addAll(knowledgeBaseUsageTracker.mostUsed(properties.getTopN()));
+
+        long started = System.nanoTime();
+        long answerCount = 0;
+        Random random = new Random(0);
+        for (Long kbId : knowledgeBases) {
+            KnowledgeBaseGraph graph;
+            try {
+                graph = knowledgeBaseGraphService.getGraph(kbId);
+            } catch (RuntimeException e) {
+                log.warn("Cannot preload knowledge base {}", kbId, e);
+                continue;
+            }
+            for (int solve = 0; solve < properties.getSyntheticSolves(); solve++) {
+                List<AnswerDto> answers = querySolver.solve(graph, syntheticCase(graph, random),
+                                random.nextBoolean(), random.nextBoolean()).stream()
+                        .map(AnswerDto::fromNodeDTO)
+                        .toList();
+                answerCount += answers.size();
+            }
+        }
+        log.info("Warmed up {} knowledge bases with {} synthetic answers in {} ms",
+                knowledgeBases.size(), answerCount, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Случай из случайных признаков, примерно две трети которых принимают подходящее значение
+    private static List<RequestDTO.Parameter> syntheticCase(KnowledgeBaseGraph graph, Random random) {
+        int featureCount = graph.featureCount();
+        List<RequestDTO.Parameter> parameters = new ArrayList<>(Math.min(featureCount, PARAMETERS_PER_CASE));
+        for (int i = 0; i < Math.min(featureCount, PARAMETERS_PER_CASE); i++) {
+            int feature = graph.featureNode(random.nextInt(featureCount));
+            String value = random.nextInt(3) > 0 ? matchingValue(graph.getCondition(feature)) : "";
+            parameters.add(new RequestDTO.Parameter(graph.getId(feature), value, null));
+        }
+        return parameters;
+    }
+
+    private static String matchingValue(ActivationCondition condition) {
+        if (condition instanceof ActivationCondition.Range range) {
+            return Long.toString(range.start());
+        } else if (condition instanceof ActivationCondition.Discrete discrete) {
+            return discrete.values().iterator().next();
+        } else if (condition instanceof ActivationCondition.Exact exact) {
+            return exact.expected();
+        }
+        return "";
+    }
+}
@@ -1,15 +1,14 @@
 package org.example.service;
 
 import lombok.AllArgsConstructor;
-import org.example.domain.DTO.NodeDTO;
-import org.example.domain.DTO.SectionDTO;
-import org.example.domain.entitiy.Attribute;
-import org.example.domain.entitiy.Node;
-import org.example.domain.types.NodeType;
+import org.example.domain.graph.KnowledgeBaseGraph;
 import org.example.repository.NodeRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @AllArgsConstructor
@@ -17,48 +16,45 @@ public class NodeService {
     
     private NodeRepository nodeRepository;
 
-    private NodeDTO convertToDto(Node node, Map<Long, NodeDTO> cache) {
-        if (cache.containsKey(node.getId())) {
-            return cache.get(node.getId());
+    @Transactional(readOnly = true)
+    public KnowledgeBaseGraph getKnowledgeBaseGraph(Long kbId, long version) {
+        Map<Long, NodeRepository.NodeAttributeRow> attributes = new HashMap<>();
+        nodeRepository.findNodeAttributeRowsByKnowledgeBaseId(kbId)
+                .forEach(row -> attributes.put(row.getNodeId(), row));
+
+        KnowledgeBaseGraph.Builder builder = KnowledgeBaseGraph.builder(kbId).version(version);
+        for (NodeRepository.NodeRow node : nodeRepository.findNodeRowsByKnowledgeBaseId(kbId)) {
+            NodeRepository.NodeAttributeRow attribute = attributes.get(node.getId());
+            if (attribute == null) {
+                builder.addNode(node.getId(), node.getName(), node.getNodeType());
+            } else {
+                builder.addNode(node.getId(), node.getName(), node.getNodeType(), attribute.getAttributeName(),
+                        attribute.getAttributeValueArea(), attribute.getActivationCondition());
+            }
         }
 
-        NodeDTO nodeDto = new NodeDTO();
-        nodeDto.setId(node.getId());
-        nodeDto.setName(node.getName());
-        nodeDto.setNodeType(node.getNodeType());
-        nodeDto.setOutgoingConnections(new HashMap<>());
-        nodeDto.setIncomingConnections(new HashMap<>());
-        nodeDto.setArguments(new HashSet<>());
-        nodeDto.setActivated(false);
+        nodeRepository.findNodeConnectionRowsByKnowledgeBaseId(kbId)
+                .forEach(row -> builder.addConnection(row.getSourceNodeId(), row.getTargetNodeId(), row.getConnectionType()));
 
-        if (node.getNodeType() == NodeType.FEATURE){
-            Attribute attribute = node.getNodeAttribute().getAttribute();
-            nodeDto.setAttribute(new NodeDTO.AttributeDto(attribute.getName(), attribute.getValueArea(), node.getNodeAttribute().getActivationCondition()));
-        }
-        cache.put(node.getId(), nodeDto);
-
-        node.getNodeConnections().stream().map(connection -> Map.entry(connection.getTargetNode(), connection.getConnectionType()))
-        .forEach(entry -> {
-            NodeDTO targetNodeDto = convertToDto(entry.getKey(), cache);
-            nodeDto.getOutgoingConnections().put(targetNodeDto, entry.getValue());
-            targetNodeDto.getIncomingConnections().put(nodeDto, entry.getValue());
-        });
-
-        return nodeDto;
+        return builder.build();
     }
 
-    public List<NodeDTO> getNodesFromSection(SectionDTO sectionDTO) {
-        List<Node> nodes = nodeRepository.findAll().stream()
-                .filter(node -> Objects.equals(node.getSection().getId(), sectionDTO.getId()))
-                .toList();
-        Map<Long, NodeDTO> cache = new HashMap<>();
-        return nodes.stream().map(node -> convertToDto(node, cache)).toList();
-    }
-
-    public List<NodeDTO> getAllNodesFromSectionList(List<SectionDTO> sections) {
-        return sections.stream()
-                .flatMap(section -> getNodesFromSection(section).stream())
-                .toList();
+    /**
+     * Отпечаток строк базы знаний в базе данных. Должен запрашиваться до чтения графа:
+     * изменение, закоммиченное между этими запросами, сделает снимок устаревшим, но не наоборот.
+     */
+    @Transactional(readOnly = true)
+    public long getKnowledgeBaseFingerprint(Long kbId) {
+        long fingerprint = 17;
+        for (NodeRepository.FingerprintRow row : List.of(
+                nodeRepository.findNodeFingerprintByKnowledgeBaseId(kbId),
+                nodeRepository.findNodeAttributeFingerprintByKnowledgeBaseId(kbId),
+                nodeRepository.findNodeConnectionFingerprintByKnowledgeBaseId(kbId))) {
+            fingerprint = fingerprint * 31 + row.getRowCount();
+            // Первые 64 бита md5
+            fingerprint = fingerprint * 31 + Long.parseUnsignedLong(row.getChecksum().substring(0, 16), 16);
+        }
+        return fingerprint;
     }
 
 }
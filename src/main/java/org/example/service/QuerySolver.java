@@ -1,260 +1,492 @@
 package org.example.service;
 
+import org.example.config.SolverProperties;
 import org.example.domain.DTO.NodeDTO;
 import org.example.domain.DTO.RequestDTO;
-import org.example.domain.types.ConnectionType;
+import org.example.domain.DTO.SolveTraceDto;
+import org.example.domain.graph.Adjacency;
+import org.example.domain.graph.KnowledgeBaseGraph;
 import org.example.domain.types.NodeType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static org.example.domain.graph.KnowledgeBaseGraph.*;
 
 @Service
 public class QuerySolver {
-    private final Set<NodeDTO> activatedFeatures = new HashSet<>();
-    private final Set<NodeDTO> inactivateFeatures = new HashSet<>();
-    private final Set<NodeDTO> activatedHypotheses = new HashSet<>();
-    private final Set<NodeDTO> solutions = new HashSet<>();
-    private final Set<NodeDTO> possibleArguments = new HashSet<>();
+    private static final byte[] PROPAGATING_CONNECTION_TYPES = {TRA, RS, SN};
 
-    public List<NodeDTO> solve(RequestDTO request, List<NodeDTO> nodes) {
-        List<NodeDTO> allFeatures = nodes.stream().filter(node -> node.getNodeType() == NodeType.FEATURE).toList();
-        activateFeatures(allFeatures, request.getParameters()); // Шаг 0 - активация узлов-признаков
+    private final int parallelMinNodes;
+    // null, если распространение всегда последовательное
+    private final SolverExecutor solverExecutor;
 
-        int activatedFeaturesSize;
-        int activatedHypothesesSize;
+    public QuerySolver() {
+        this.parallelMinNodes = Integer.MAX_VALUE;
+        this.solverExecutor = null;
+    }
 
-        do {
-            activatedFeaturesSize = activatedFeatures.size();
-            activatedHypothesesSize = activatedHypotheses.size();
+    @Autowired
+    public QuerySolver(SolverProperties solverProperties, SolverExecutor solverExecutor) {
+        this.parallelMinNodes = solverProperties.getParallel().getMinNodes();
+        this.solverExecutor = solverExecutor;
+    }
 
-            generateHypothesesSet(); // Шаг 1
-            expandArgumentsSet(); // Шаг 2
-            testArguments(); // Шаг 3
-        } while (activatedHypothesesSize != activatedHypotheses.size() || activatedFeaturesSize != activatedFeatures.size());
+    public List<NodeDTO> solve(RequestDTO request, KnowledgeBaseGraph graph) {
+        return solve(graph, request.getParameters(),
+                request.isHypothesesSetDifferentiationNeeded(), request.isHypothesesSetMinimizationNeeded());
+    }
 
-        reduceHypothesesSetByRejectingArguments(); // Шаг 4
+    public List<NodeDTO> solve(KnowledgeBaseGraph graph, List<RequestDTO.Parameter> parameters,
+                               boolean differentiationNeeded, boolean minimizationNeeded) {
+        return solve(graph, parameters, differentiationNeeded, minimizationNeeded, new SolveStatistics());
+    }
 
-        reduceHypothesesSetByMissingArguments(); // Шаг 5
+    public List<NodeDTO> solve(KnowledgeBaseGraph graph, List<RequestDTO.Parameter> parameters,
+                               boolean differentiationNeeded, boolean minimizationNeeded, SolveStatistics statistics) {
+        return solve(graph, parameters, differentiationNeeded, minimizationNeeded, statistics, null);
+    }
 
-        solutions.addAll(activatedHypotheses); // Шаг 6
+    /**
+     * Решение с трассой вывода: если {@code trace} не {@code null}, в неё записывается,
+     * что сработало на каждом шаге и почему исключены гипотезы.
+     */
+    public List<NodeDTO> solve(KnowledgeBaseGraph graph, List<RequestDTO.Parameter> parameters,
+                               boolean differentiationNeeded, boolean minimizationNeeded,
+                               SolveStatistics statistics, SolveTraceDto trace) {
+        InferenceContext context = new InferenceContext(graph, statistics, trace);
+        propagate(context, parameters);
+        return reduce(context, differentiationNeeded, minimizationNeeded);
+    }
 
-        if (request.isHypothesesSetDifferentiationNeeded() && activatedHypotheses.size() > 1) { // Шаг 7
-            differentiateHypothesesSet();
+    /**
+     * Шаги 0-2: активирует признаки из {@code parameters} и распространяет активацию от них.
+     * Повторный вызов с новыми признаками продолжает вывод в том же контексте:
+     * просматриваются только узлы, активированные этими признаками.
+     * Шаг 3, подтверждение признаков клиентом, - вопросы сессии {@link SolveSessionService}:
+     * ответы на них передаются сюда повторным вызовом.
+     */
+    public void propagate(InferenceContext context, List<RequestDTO.Parameter> parameters) {
+        KnowledgeBaseGraph graph = context.getGraph();
+        SolveStatistics statistics = context.getStatistics();
+        SolveTraceDto trace = context.getTrace();
+        long started = System.nanoTime();
+        activateFeatures(context, parameters); // Шаг 0 - активация узлов-признаков
+        started = statistics.recordStep(SolveStatistics.Step.ACTIVATE_FEATURES, started);
+        if (trace != null) {
+            addIds(graph, context.getActivatedFeatures(), trace.getActivatedFeatures());
+            addIds(graph, context.getInactiveFeatures(), trace.getInactiveFeatures());
         }
 
-        if (request.isHypothesesSetMinimizationNeeded() && activatedHypotheses.size() > 2) { // Шаг 8
-            minimizeExplanatorySet();
+        if (!tryGenerateHypothesesSetInParallel(context)) { // Шаг 1
+            generateHypothesesSet(context);
         }
-
-        return solutions.stream().toList();
+        statistics.hypothesesActivated(context.getActivatedHypotheses().cardinality());
+        started = statistics.recordStep(SolveStatistics.Step.GENERATE_HYPOTHESES, started);
+        if (trace != null) {
+            for (int position = 0; position < context.getActivationCount(); position++) {
+                int node = context.getActivationOrder()[position];
+                if (graph.isAuxiliary(node)) {
+                    trace.getActivatedNodes().add(graph.getId(node));
+                }
+            }
+            addIds(graph, context.getActivatedHypotheses(), trace.getActivatedHypotheses());
+        }
+        expandArgumentsSet(context); // Шаг 2
+        statistics.recordStep(SolveStatistics.Step.EXPAND_ARGUMENTS, started);
     }
 
-    private void activateFeatures(List<NodeDTO> features, List<RequestDTO.Parameter> parameters) {
-        Set<Long> featureIds = features.stream()
-                .map(NodeDTO::getId)
-                .collect(Collectors.toSet());
-
-        Map<RequestDTO.Parameter, NodeDTO> parametersNodes = parameters.stream()
-                .filter(parameter -> featureIds.contains(parameter.getFeatureId()))
-                .collect(Collectors.toMap(
-                        param -> param,
-                        param -> features.stream()
-                                .filter(node -> Objects.equals(node.getId(), param.getFeatureId()))
-                                .findAny().orElseThrow()
-                ));
-
-        activatedFeatures.addAll(parametersNodes.entrySet().stream()
-                .filter(entry -> checkFeatureActivationCondition(entry.getValue().getAttribute().getActivationCondition(),
-                        entry.getKey().getAttributeValue()))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet()));
-        activatedFeatures.forEach(feature -> feature.setActivated(true));
-        inactivateFeatures.addAll(parametersNodes.entrySet().stream()
-                .filter(entry -> !checkFeatureActivationCondition(entry.getValue().getAttribute().getActivationCondition(),
-                        entry.getKey().getAttributeValue()))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet()));
-    }
+    /**
+     * Шаги 4-8: сокращает множество гипотез и возвращает решения.
+     * Исключённые гипотезы снимаются с контекста, поэтому если вывод будет продолжен,
+     * сокращается копия из {@link InferenceContext#copyForReduction()}.
+     */
+    public List<NodeDTO> reduce(InferenceContext context, boolean differentiationNeeded, boolean minimizationNeeded) {
+        KnowledgeBaseGraph graph = context.getGraph();
+        SolveStatistics statistics = context.getStatistics();
+        SolveTraceDto trace = context.getTrace();
+        long started = System.nanoTime();
+        reduceHypothesesSetByRejectingArguments(context); // Шаг 4
+        started = statistics.recordStep(SolveStatistics.Step.REJECTING_ARGUMENTS, started);
+
+        reduceHypothesesSetByMissingArguments(context); // Шаг 5
+
+        context.getSolutions().or(context.getActivatedHypotheses()); // Шаг 6
+        started = statistics.recordStep(SolveStatistics.Step.MISSING_ARGUMENTS, started);
+
+        if (differentiationNeeded && context.getActivatedHypotheses().cardinality() > 1) { // Шаг 7
+            differentiateHypothesesSet(context);
+            started = statistics.recordStep(SolveStatistics.Step.DIFFERENTIATION, started);
+        }
 
-    public boolean checkFeatureActivationCondition(String activationCondition, String input) {
-        if (activationCondition.matches("\\d+:\\d+")) {
-            return checkRangeCondition(activationCondition, input);
-        } else if (activationCondition.matches("\\[\\d+(,\\d+)*\\]")) {
-            return checkDiscreteCondition(activationCondition, input);
-        } else {
-            return checkStringCondition(activationCondition, input);
+        if (minimizationNeeded && context.getActivatedHypotheses().cardinality() > 2) { // Шаг 8
+            minimizeExplanatorySet(context);
+            statistics.recordStep(SolveStatistics.Step.MINIMIZATION, started);
         }
-    }
 
-    private boolean checkRangeCondition(String condition, String input) {
-        String[] parts = condition.split(":");
-        int start = Integer.parseInt(parts[0]);
-        int end = Integer.parseInt(parts[1]);
+        if (trace != null) {
+            for (SolveStatistics.Step step : SolveStatistics.Step.values()) {
+                trace.getStepNanos().put(step.getTag(), statistics.getStepNanos()[step.ordinal()]);
+            }
+            trace.setNodesVisited(statistics.getNodesVisited());
+            trace.setEdgesTraversed(statistics.getEdgesTraversed());
+            trace.setArgumentIterations(statistics.getArgumentIterations());
+        }
 
-        try {
-            int value = Integer.parseInt(input);
-            return value >= start && value <= end;
-        } catch (NumberFormatException e) {
-            return false;
+        List<NodeDTO> result = new ArrayList<>(context.getSolutions().cardinality());
+        BitSet solutions = context.getSolutions();
+        for (int solution = solutions.nextSetBit(0); solution >= 0; solution = solutions.nextSetBit(solution + 1)) {
+            result.add(toNodeDTO(graph, solution, context.getArguments(solution)));
         }
+        return result;
     }
 
-    private boolean checkDiscreteCondition(String condition, String input) {
-        String trimmedCondition = condition.substring(1, condition.length() - 1);
-        List<String> discreteValues = Arrays.asList(trimmedCondition.split(","));
-        return discreteValues.contains(input);
-    }
+    private void activateFeatures(InferenceContext context, List<RequestDTO.Parameter> parameters) {
+        KnowledgeBaseGraph graph = context.getGraph();
+        BitSet matched = null;
+        for (RequestDTO.Parameter parameter : parameters) {
+            if (parameter.getFeatureId() == null) {
+                if (parameter.getAttributeName() != null) {
+                    if (matched == null) {
+                        matched = new BitSet(graph.size());
+                    }
+                    graph.getAttributeIndex().lookup(parameter.getAttributeName(), parameter.getAttributeValue(),
+                            matched, context.getInactiveFeatures());
+                }
+                continue;
+            }
 
-    private boolean checkStringCondition(String condition, String input) {
-        return condition.equals(input);
-    }
+            int feature = graph.indexOf(parameter.getFeatureId());
+            // Признак без условия активации (атрибут снят) проверить нельзя
+            if (feature < 0 || !graph.isFeature(feature) || graph.getCondition(feature) == null) {
+                continue;
+            }
 
-    private void generateHypothesesSet() {
-        for (NodeDTO feature : activatedFeatures) {
-            Map<NodeDTO, ConnectionType> connections = feature.getOutgoingConnections();
+            if (graph.getCondition(feature).matches(parameter.getAttributeValue())) {
+                context.getActivatedFeatures().set(feature);
+                context.activate(feature);
+            } else {
+                context.getInactiveFeatures().set(feature);
+            }
+        }
 
-            for (Map.Entry<NodeDTO, ConnectionType> entry : connections.entrySet()) {
-                NodeDTO relatedNode = entry.getKey();
-                ConnectionType connectionType = entry.getValue();
+        if (matched != null) {
+            context.getActivatedFeatures().or(matched);
+            for (int feature = matched.nextSetBit(0); feature >= 0; feature = matched.nextSetBit(feature + 1)) {
+                context.activate(feature);
+            }
+        }
+    }
 
-                if (relatedNode.getNodeType() != NodeType.FEATURE && connectionType != ConnectionType.S) {
-                    relatedNode.getArguments().add(feature);
-                    activateNode(relatedNode, connectionType);
+    /**
+     * Распространяет активацию от ещё не обработанных активных узлов.
+     * Каждое ребро просматривается один раз - когда активируется его начало:
+     * узел AND хранит число активных входов и срабатывает, когда оно равно числу входящих связей,
+     * узел OR срабатывает на первом входе, гипотеза - на первой связи TRA, RS или SN.
+     * Затем множества аргументов дополняются вдоль сработавших связей.
+     */
+    private void generateHypothesesSet(InferenceContext context) {
+        KnowledgeBaseGraph graph = context.getGraph();
+        Adjacency outgoing = graph.getOutgoing();
+        Adjacency incoming = graph.getIncoming();
+        int firstActivation = context.getPropagatedCount();
+
+        while (context.hasPendingActivations()) {
+            int node = context.nextPendingActivation();
+            boolean propagating = graph.isFeature(node) || graph.isAuxiliary(node);
+            context.getStatistics().nodeVisited();
+            context.getStatistics().edgesTraversed(outgoing.degree(node));
+
+            for (int edge = outgoing.start(node); edge < outgoing.end(node); edge++) {
+                int relatedNode = outgoing.target(edge);
+                if (graph.isFeature(relatedNode)) {
+                    continue;
+                }
+                context.getActiveInputs()[relatedNode]++;
+
+                byte connectionType = outgoing.connectionType(edge);
+                if (propagating && connectionType != S) {
+                    context.getReached().set(relatedNode);
+                    if (connectionType == RS && graph.isHypothesis(relatedNode)) {
+                        context.getActivatedHypotheses().set(relatedNode);
+                    } else if (connectionType == TRA && graph.isHypothesis(relatedNode)) {
+                        context.getSolutions().set(relatedNode);
+                    }
+                }
+
+                if (context.getReached().get(relatedNode)
+                        && (graph.getNodeType(relatedNode) != NodeType.AND
+                        || context.getActiveInputs()[relatedNode] == incoming.degree(relatedNode))) {
+                    context.activate(relatedNode);
                 }
             }
         }
 
-        activatedHypotheses.addAll(solutions);
+        context.getActivatedHypotheses().or(context.getSolutions());
+        expandArgumentSets(context, firstActivation);
     }
 
-    private void activateNode(NodeDTO node, ConnectionType connectionType) {
-        if ((node.getNodeType() == NodeType.OR || node.getNodeType() == NodeType.AND) && isAuxiliaryNodeActivated(node)) {
-            Map<NodeDTO, ConnectionType> connections = node.getOutgoingConnections().entrySet().stream()
-                    .filter(entry -> entry.getKey().getNodeType() != NodeType.FEATURE
-                            && entry.getValue() != ConnectionType.S)
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-
-            for (Map.Entry<NodeDTO, ConnectionType> entry : connections.entrySet()) {
-                NodeDTO relatedNode = entry.getKey();
-                ConnectionType relatedConnectionType = entry.getValue();
+    /**
+     * Шаг 1 для больших запросов: признаки, попавшие в разные компоненты связности, распространяются
+     * параллельно в пуле частей {@link SolverExecutor}, каждая группа компонент - в собственном контексте,
+     * который затем сливается с основным.
+     * Возвращает {@code false}, если затронутых компонент меньше двух или в них меньше {@code parallelMinNodes} узлов.
+     */
+    private boolean tryGenerateHypothesesSetInParallel(InferenceContext context) {
+        KnowledgeBaseGraph graph = context.getGraph();
+        // Продолжение вывода опирается на счётчики основного контекста, поэтому идёт последовательно
+        if (solverExecutor == null || context.getPropagatedCount() > 0 || graph.componentCount() < 2
+                || graph.size() < parallelMinNodes) {
+            return false;
+        }
 
-                relatedNode.getArguments().addAll(node.getArguments());
-                activateNode(relatedNode, relatedConnectionType);
+        Map<Integer, List<Integer>> seedsByComponent = new HashMap<>();
+        long touchedNodes = 0;
+        for (int position = context.getPropagatedCount(); position < context.getActivationCount(); position++) {
+            int node = context.getActivationOrder()[position];
+            List<Integer> seeds = seedsByComponent.computeIfAbsent(graph.componentOf(node), component -> new ArrayList<>());
+            if (seeds.isEmpty()) {
+                touchedNodes += graph.componentSize(graph.componentOf(node));
             }
-
+            seeds.add(node);
         }
-        else if (node.getNodeType() == NodeType.HYPOTHESIS) {
-            if (connectionType == ConnectionType.RS) {
-                activatedHypotheses.add(node);
-            } else if (connectionType == ConnectionType.TRA) {
-                solutions.add(node);
-            }
-            node.setActivated(true);
+        if (seedsByComponent.size() < 2 || touchedNodes < parallelMinNodes) {
+            return false;
+        }
+
+        // Компоненты от больших к меньшим раскладываются по наименее загруженным частям
+        int partCount = Math.min(seedsByComponent.size(), solverExecutor.parallelism());
+        List<InferenceContext> parts = new ArrayList<>(partCount);
+        long[] load = new long[partCount];
+        for (int part = 0; part < partCount; part++) {
+            parts.add(new InferenceContext(graph, new SolveStatistics(), null));
         }
+        seedsByComponent.entrySet().stream()
+                .sorted(Comparator.comparingInt((Map.Entry<Integer, List<Integer>> entry) -> graph.componentSize(entry.getKey())).reversed())
+                .forEach(entry -> {
+                    int part = 0;
+                    for (int candidate = 1; candidate < partCount; candidate++) {
+                        if (load[candidate] < load[part]) {
+                            part = candidate;
+                        }
+                    }
+                    load[part] += graph.componentSize(entry.getKey());
+                    for (int seed : entry.getValue()) {
+                        parts.get(part).activate(seed);
+                    }
+                });
 
+        solverExecutor.forkJoin(parts.stream().<Runnable>map(part -> () -> generateHypothesesSet(part)).toList());
+        parts.forEach(context::absorb);
+        return true;
     }
 
-    public boolean isAuxiliaryNodeActivated(NodeDTO node) {
-        if (node.getNodeType() == NodeType.AND
-                && node.getIncomingConnections().keySet().stream().allMatch(NodeDTO::isActivated)) {
-            node.setActivated(true);
-            return true;
+    private void expandArgumentSets(InferenceContext context, int firstActivation) {
+        KnowledgeBaseGraph graph = context.getGraph();
+        int[] queue = new int[graph.size()];
+        BitSet queued = new BitSet(graph.size());
+        int head = 0;
+        int size = 0;
+
+        for (int position = firstActivation; position < context.getActivationCount(); position++) {
+            int node = context.getActivationOrder()[position];
+            if (graph.isFeature(node) || graph.isAuxiliary(node)) {
+                queue[size++] = node;
+                queued.set(node);
+            }
         }
-        if (node.getNodeType() == NodeType.OR
-                && node.getIncomingConnections().keySet().stream().anyMatch(NodeDTO::isActivated)) {
-            node.setActivated(true);
-            return true;
+        // При продолжении вывода новые узлы получают аргументы от активированных ранее предшественников
+        if (firstActivation > 0) {
+            for (int position = firstActivation; position < context.getActivationCount(); position++) {
+                int node = context.getActivationOrder()[position];
+                for (byte connectionType : PROPAGATING_CONNECTION_TYPES) {
+                    Adjacency connections = graph.getIncoming(connectionType);
+                    for (int edge = connections.start(node); edge < connections.end(node); edge++) {
+                        int source = connections.target(edge);
+                        if ((graph.isFeature(source) || graph.isAuxiliary(source))
+                                && context.getActivated().get(source) && !queued.get(source)) {
+                            queue[size++] = source;
+                            queued.set(source);
+                        }
+                    }
+                }
+            }
         }
-        return false;
-    }
-
-    private void expandArgumentsSet() {
-        possibleArguments.addAll(activatedHypotheses.stream()
-                .flatMap(node -> node.getOutgoingConnections().entrySet().stream()
-                        .filter(entry -> entry.getKey().getNodeType() == NodeType.FEATURE
-                                && entry.getValue() == ConnectionType.RS && !activatedFeatures.contains(entry.getKey()))
-                        .map(Map.Entry::getKey))
-                .collect(Collectors.toSet()));
 
+        // Узел возвращается в очередь, только если его множество аргументов пополнилось после обработки
+        while (size > 0) {
+            int node = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            queued.clear(node);
+            context.getStatistics().argumentIteration();
+
+            for (byte connectionType : PROPAGATING_CONNECTION_TYPES) {
+                Adjacency connections = graph.getOutgoing(connectionType);
+                context.getStatistics().edgesTraversed(connections.degree(node));
+                for (int edge = connections.start(node); edge < connections.end(node); edge++) {
+                    int relatedNode = connections.target(edge);
+                    if (graph.isFeature(relatedNode) || !context.getActivated().get(relatedNode)) {
+                        continue;
+                    }
 
-    }
+                    FeatureSet arguments = context.getArguments(relatedNode);
+                    boolean changed = graph.isFeature(node)
+                            ? arguments.add(graph.featureOrdinal(node))
+                            : arguments.addAll(context.getArguments(node));
 
-    private void testArguments() {
-        // Запрос к клиенту для подтверждение признаков
+                    if (changed && graph.isAuxiliary(relatedNode) && !queued.get(relatedNode)) {
+                        queue[(head + size) % queue.length] = relatedNode;
+                        size++;
+                        queued.set(relatedNode);
+                    }
+                }
+            }
+        }
     }
 
-    private void reduceHypothesesSetByRejectingArguments() {
-        Set<NodeDTO> hypothesesToRemove = new HashSet<>();
+    private void expandArgumentsSet(InferenceContext context) {
+        KnowledgeBaseGraph graph = context.getGraph();
+        Adjacency connections = graph.getOutgoing(RS);
+        BitSet activatedHypotheses = context.getActivatedHypotheses();
 
-        for (NodeDTO hypothesis : activatedHypotheses) {
-            for (NodeDTO relatedNode : hypothesis.getIncomingConnections().keySet()) {
-                if (activatedFeatures.contains(relatedNode) && hypothesis.getIncomingConnections().get(relatedNode) == ConnectionType.S) {
-                    hypothesesToRemove.add(hypothesis);
-                    hypothesis.setActivated(false);
+        for (int hypothesis = activatedHypotheses.nextSetBit(0); hypothesis >= 0; hypothesis = activatedHypotheses.nextSetBit(hypothesis + 1)) {
+            for (int edge = connections.start(hypothesis); edge < connections.end(hypothesis); edge++) {
+                int relatedNode = connections.target(edge);
+                if (graph.isFeature(relatedNode) && !context.getActivatedFeatures().get(relatedNode)) {
+                    context.getPossibleArguments().set(relatedNode);
                 }
             }
         }
-        activatedHypotheses.removeAll(hypothesesToRemove);
     }
 
-    private void reduceHypothesesSetByMissingArguments() {
-        Set<NodeDTO> hypothesesToRemove = new HashSet<>();
+    private void reduceHypothesesSetByRejectingArguments(InferenceContext context) {
+        removeHypothesesConnectedTo(context, context.getGraph().getIncoming(S), context.getActivatedFeatures(),
+                4, "rejecting argument is present");
+    }
+
+    private void reduceHypothesesSetByMissingArguments(InferenceContext context) {
+        removeHypothesesConnectedTo(context, context.getGraph().getOutgoing(TRA), context.getInactiveFeatures(),
+                5, "required argument is missing");
+    }
 
-        for (NodeDTO hypothesis : activatedHypotheses) {
-            for (NodeDTO relatedNode : hypothesis.getOutgoingConnections().keySet()) {
-                if (inactivateFeatures.contains(relatedNode) && hypothesis.getOutgoingConnections().get(relatedNode) == ConnectionType.TRA) {
-                    hypothesesToRemove.add(hypothesis);
-                    hypothesis.setActivated(false);
+    private void removeHypothesesConnectedTo(InferenceContext context, Adjacency connections, BitSet features,
+                                             int step, String reason) {
+        BitSet hypothesesToRemove = new BitSet();
+        BitSet activatedHypotheses = context.getActivatedHypotheses();
+
+        for (int hypothesis = activatedHypotheses.nextSetBit(0); hypothesis >= 0; hypothesis = activatedHypotheses.nextSetBit(hypothesis + 1)) {
+            for (int edge = connections.start(hypothesis); edge < connections.end(hypothesis); edge++) {
+                if (features.get(connections.target(edge))) {
+                    hypothesesToRemove.set(hypothesis);
+                    context.getActivated().clear(hypothesis);
+                    if (context.getTrace() != null) {
+                        traceRemoval(context, hypothesis, step, reason, connections.target(edge));
+                    }
+                    break;
                 }
             }
         }
-        activatedHypotheses.removeAll(hypothesesToRemove);
+        activatedHypotheses.andNot(hypothesesToRemove);
+        context.getStatistics().hypothesesRemoved(hypothesesToRemove.cardinality());
     }
 
-    private void differentiateHypothesesSet() {
-        Set<NodeDTO> hypothesesToRemove = new HashSet<>();
-        for (NodeDTO hypothesis : solutions) {
-            for (NodeDTO otherHypothesis : solutions) {
-                if (hypothesis != otherHypothesis && hypothesis.getArguments().containsAll(otherHypothesis.getArguments())) {
-                    if (hypothesis.getArguments().size() > otherHypothesis.getArguments().size()) {
-                        hypothesesToRemove.add(otherHypothesis);
-                        otherHypothesis.setActivated(false);
-                    } else if (hypothesis.getArguments().size() < otherHypothesis.getArguments().size()) {
-                        hypothesesToRemove.add(hypothesis);
-                        hypothesis.setActivated(false);
+    private void differentiateHypothesesSet(InferenceContext context) {
+        BitSet solutions = context.getSolutions();
+        int[] hypotheses = solutions.stream().toArray();
+        int[] sizes = new int[hypotheses.length];
+        for (int i = 0; i < hypotheses.length; i++) {
+            sizes[i] = context.getArguments(hypotheses[i]).size();
+        }
+
+        // Гипотеза исключается, если её аргументы - строгое подмножество аргументов другой гипотезы.
+        // Строгое подмножество всегда меньше по размеру, поэтому сравниваются только гипотезы большего размера
+        BitSet hypothesesToRemove = new BitSet();
+        for (int i = 0; i < hypotheses.length; i++) {
+            FeatureSet arguments = context.getArguments(hypotheses[i]);
+            for (int j = 0; j < hypotheses.length; j++) {
+                if (sizes[j] > sizes[i] && context.getArguments(hypotheses[j]).containsAll(arguments)) {
+                    hypothesesToRemove.set(hypotheses[i]);
+                    context.getActivated().clear(hypotheses[i]);
+                    if (context.getTrace() != null) {
+                        traceRemoval(context, hypotheses[i], 7, "arguments are a strict subset of another hypothesis", hypotheses[j]);
                     }
+                    break;
                 }
             }
         }
-        solutions.removeAll(hypothesesToRemove);
+        solutions.andNot(hypothesesToRemove);
+        context.getStatistics().hypothesesRemoved(hypothesesToRemove.cardinality());
     }
 
-    private void minimizeExplanatorySet() {
-        boolean found = true;
-        Set<NodeDTO> hypothesesToRemove = new HashSet<>();
+    private void minimizeExplanatorySet(InferenceContext context) {
+        BitSet solutions = context.getSolutions();
 
-        while (found) {
-            found = false;
-            solutions.removeAll(hypothesesToRemove);
-            hypothesesToRemove.clear();
+        // coverage[f] - число оставшихся гипотез, среди аргументов которых есть признак f.
+        // Гипотеза избыточна, если каждый её аргумент покрыт ещё хотя бы одной гипотезой
+        int[] coverage = new int[context.getGraph().featureCount()];
+        for (int hypothesis = solutions.nextSetBit(0); hypothesis >= 0; hypothesis = solutions.nextSetBit(hypothesis + 1)) {
+            FeatureSet arguments = context.getArguments(hypothesis);
+            for (int feature = arguments.nextFeature(0); feature >= 0; feature = arguments.nextFeature(feature + 1)) {
+                coverage[feature]++;
+            }
+        }
 
-            for (NodeDTO hypothesis : solutions) {
-                Set<NodeDTO> combinedArguments = new HashSet<>();
-                for (NodeDTO otherHypothesis : solutions) {
-                    if (!hypothesis.equals(otherHypothesis)) {
-                        combinedArguments.addAll(otherHypothesis.getArguments());
-                    }
+        // Удаление гипотезы только уменьшает покрытие, поэтому уже проверенные гипотезы
+        // не становятся избыточными и достаточно одного прохода
+        for (int hypothesis = solutions.nextSetBit(0); hypothesis >= 0; hypothesis = solutions.nextSetBit(hypothesis + 1)) {
+            FeatureSet arguments = context.getArguments(hypothesis);
+            boolean redundant = true;
+            for (int feature = arguments.nextFeature(0); feature >= 0; feature = arguments.nextFeature(feature + 1)) {
+                if (coverage[feature] < 2) {
+                    redundant = false;
+                    break;
                 }
+            }
 
-                if (combinedArguments.containsAll(hypothesis.getArguments())) {
-                    hypothesesToRemove.add(hypothesis);
-                    hypothesis.setActivated(false);
-                    found = true;
-                    break;
+            if (redundant) {
+                for (int feature = arguments.nextFeature(0); feature >= 0; feature = arguments.nextFeature(feature + 1)) {
+                    coverage[feature]--;
+                }
+                solutions.clear(hypothesis);
+                context.getActivated().clear(hypothesis);
+                context.getStatistics().hypothesesRemoved(1);
+                if (context.getTrace() != null) {
+                    traceRemoval(context, hypothesis, 8, "all arguments are explained by other hypotheses", -1);
                 }
             }
+        }
+    }
 
+    private void traceRemoval(InferenceContext context, int hypothesis, int step, String reason, int cause) {
+        KnowledgeBaseGraph graph = context.getGraph();
+        context.getTrace().getRemovedHypotheses().add(new SolveTraceDto.Removal(
+                graph.getId(hypothesis), step, reason, cause < 0 ? null : graph.getId(cause)));
+    }
+
+    private static void addIds(KnowledgeBaseGraph graph, BitSet nodes, List<Long> ids) {
+        for (int node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+            ids.add(graph.getId(node));
+        }
+    }
+
+    private NodeDTO toNodeDTO(KnowledgeBaseGraph graph, int node, FeatureSet arguments) {
+        NodeDTO nodeDto = new NodeDTO();
+        nodeDto.setId(graph.getId(node));
+        nodeDto.setName(graph.getName(node));
+        nodeDto.setNodeType(graph.getNodeType(node));
+        nodeDto.setArguments(new LinkedHashSet<>());
+        nodeDto.setActivated(true);
+        if (graph.isFeature(node)) {
+            nodeDto.setAttribute(new NodeDTO.AttributeDto(graph.getAttributeName(node),
+                    graph.getAttributeValueArea(node), graph.getActivationCondition(node)));
+        }
+        if (arguments != null) {
+            for (int feature = arguments.nextFeature(0); feature >= 0; feature = arguments.nextFeature(feature + 1)) {
+                nodeDto.getArguments().add(toNodeDTO(graph, graph.featureNode(feature), null));
+            }
         }
+        return nodeDto;
     }
 }
@@ -0,0 +1,94 @@
+package org.example.service;
+
+import org.example.domain.DTO.QuestionDto;
+import org.example.domain.graph.Adjacency;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.example.domain.graph.KnowledgeBaseGraph.*;
+
+/**
+ * Упорядочивает уточняющие вопросы по ожидаемому приросту информации о множестве оставшихся гипотез.
+ * Признак, связанный с гипотезой связью RS или TRA, ожидается ею подтверждённым, связью S - опровергнутым;
+ * остальные гипотезы совместимы с любым ответом и делятся между исходами поровну.
+ * Связи берутся из списков смежности скомпилированного графа, так что оценка стоит
+ * порядка числа связей оставшихся гипотез.
+ */
+@Component
+public class QuestionRanker {
+    private static final double LN_2 = Math.log(2);
+
+    /**
+     * @param hypotheses гипотезы, между которыми нужно выбрать
+     * @param answered   признаки, на которые уже получен ответ
+     */
+    public List<QuestionDto> rank(KnowledgeBaseGraph graph, BitSet hypotheses, BitSet answered, int limit) {
+        int hypothesisCount = hypotheses.cardinality();
+        if (hypothesisCount == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        // Для каждого признака - число гипотез, ожидающих его подтверждения и опровержения
+        Map<Integer, int[]> expectations = new HashMap<>();
+        for (int hypothesis = hypotheses.nextSetBit(0); hypothesis >= 0; hypothesis = hypotheses.nextSetBit(hypothesis + 1)) {
+            countExpectations(graph, graph.getOutgoing(RS), hypothesis, answered, expectations, 0);
+            countExpectations(graph, graph.getOutgoing(TRA), hypothesis, answered, expectations, 0);
+            countExpectations(graph, graph.getIncoming(S), hypothesis, answered, expectations, 1);
+        }
+
+        List<Candidate> candidates = new ArrayList<>(expectations.size());
+        expectations.forEach((feature, counts) -> candidates.add(new Candidate(feature, counts[0] + counts[1],
+                informationGain(hypothesisCount, counts[0], counts[1]))));
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed()
+                .thenComparing(Comparator.comparingInt(Candidate::linkedHypotheses).reversed())
+                .thenComparingLong(candidate -> graph.getId(candidate.feature())));
+
+        List<QuestionDto> questions = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (Candidate candidate : candidates.subList(0, Math.min(limit, candidates.size()))) {
+            int feature = candidate.feature();
+            questions.add(new QuestionDto(graph.getId(feature), graph.getName(feature), graph.getAttributeName(feature),
+                    graph.getAttributeValueArea(feature), candidate.score()));
+        }
+        return questions;
+    }
+
+    private static void countExpectations(KnowledgeBaseGraph graph, Adjacency connections, int hypothesis,
+                                          BitSet answered, Map<Integer, int[]> expectations, int outcome) {
+        for (int edge = connections.start(hypothesis); edge < connections.end(hypothesis); edge++) {
+            int feature = connections.target(edge);
+            // Признак без условия активации проверить нельзя
+            if (graph.isFeature(feature) && !answered.get(feature) && graph.getCondition(feature) != null) {
+                expectations.computeIfAbsent(feature, ignored -> new int[2])[outcome]++;
+            }
+        }
+    }
+
+    /**
+     * Прирост информации при равновероятных гипотезах: гипотеза, совместимая с обоими ответами,
+     * остаётся в каждом исходе с весом 1/2.
+     */
+    static double informationGain(int hypothesisCount, int expectPresent, int expectAbsent) {
+        double indifferent = Math.max(0, hypothesisCount - expectPresent - expectAbsent) / 2.0;
+        double presentWeight = Math.min(hypothesisCount, expectPresent) + indifferent;
+        double absentWeight = Math.min(hypothesisCount, expectAbsent) + indifferent;
+        double total = presentWeight + absentWeight;
+        double remaining = (presentWeight * entropy(presentWeight, indifferent)
+                + absentWeight * entropy(absentWeight, indifferent)) / total;
+        return Math.max(0, (Math.log(hypothesisCount) - remaining) / LN_2);
+    }
+
+    // Энтропия распределения, в котором на долю гипотез с весом 1/2 приходится вес indifferent
+    private static double entropy(double weight, double indifferent) {
+        return weight > 0 ? Math.log(weight) + indifferent * LN_2 / weight : 0;
+    }
+
+    private record Candidate(int feature, int linkedHypotheses, double score) {
+    }
+}
@@ -8,7 +8,6 @@ import org.example.repository.SectionRepository;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 @AllArgsConstructor
@@ -17,9 +16,8 @@ public class SectionService {
     private SectionRepository sectionRepository;
 
     public List<SectionDTO> getAllSectionFromKnowledgeBase(KnowledgeBaseDTO knowledgeBaseDTO) {
-        List<Section> nodes = sectionRepository.findAll();
-        return nodes.stream()
-                .filter(node -> Objects.equals(node.getKnowledgeBase().getId(), knowledgeBaseDTO.getId()))
+        List<Section> sections = sectionRepository.findAllByKnowledgeBaseId(knowledgeBaseDTO.getId());
+        return sections.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
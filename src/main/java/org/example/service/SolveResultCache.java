@@ -0,0 +1,85 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.config.SolverProperties;
+import org.example.domain.DTO.AnswerDto;
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов решателя. Ключ не зависит от порядка и повторов параметров
+ * и включает версию графа, так что после перезагрузки базы знаний старые ответы не используются.
+ * Метрики попаданий публикуются как {@code cache.*} с тегом {@code cache=solver.results}.
+ * Ответ вычисляется в {@link SolverExecutor#blockingExecutor()}, одновременные одинаковые запросы ждут одного решения.
+ */
+@Component
+public class SolveResultCache {
+    private static final Comparator<ParameterKey> PARAMETER_ORDER = Comparator
+            .comparing(ParameterKey::featureId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ParameterKey::attributeName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ParameterKey::attributeValue, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final AsyncCache<ResultKey, List<AnswerDto>> answers;
+
+    public SolveResultCache(SolverProperties solverProperties, SolverExecutor solverExecutor, MeterRegistry meterRegistry) {
+        SolverProperties.ResultCache properties = solverProperties.getResultCache();
+        this.answers = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumWeight())
+                .weigher(SolveResultCache::weigh)
+                .expireAfterAccess(properties.getExpireAfterAccess())
+                .executor(solverExecutor.blockingExecutor())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, answers, "solver.results");
+    }
+
+    public List<AnswerDto> get(KnowledgeBaseGraph graph, List<RequestDTO.Parameter> parameters,
+                               boolean differentiationNeeded, boolean minimizationNeeded,
+                               Supplier<List<AnswerDto>> solver) {
+        ResultKey key = new ResultKey(graph.getKbId(), graph.getVersion(),
+                differentiationNeeded, minimizationNeeded, fingerprint(parameters));
+        return SolverExecutor.join(answers.get(key, ignored -> solver.get()));
+    }
+
+    private static List<ParameterKey> fingerprint(List<RequestDTO.Parameter> parameters) {
+        List<ParameterKey> keys = new ArrayList<>(parameters.size());
+        for (RequestDTO.Parameter parameter : parameters) {
+            keys.add(new ParameterKey(parameter.getFeatureId(), parameter.getAttributeName(),
+                    parameter.getAttributeValue()));
+        }
+        keys.sort(PARAMETER_ORDER);
+        // Повторный параметр не меняет результат решателя
+        List<ParameterKey> distinct = new ArrayList<>(keys.size());
+        for (ParameterKey key : keys) {
+            if (distinct.isEmpty() || !distinct.get(distinct.size() - 1).equals(key)) {
+                distinct.add(key);
+            }
+        }
+        return List.copyOf(distinct);
+    }
+
+    // Вес записи - число узлов в ответе вместе с аргументами
+    private static int weigh(ResultKey key, List<AnswerDto> value) {
+        int weight = 1 + key.parameters().size();
+        for (AnswerDto answer : value) {
+            weight += 1 + answer.getArguments().size();
+        }
+        return weight;
+    }
+
+    private record ResultKey(Long kbId, long graphVersion, boolean differentiationNeeded,
+                             boolean minimizationNeeded, List<ParameterKey> parameters) {
+    }
+
+    private record ParameterKey(Long featureId, String attributeName, String attributeValue) {
+    }
+}
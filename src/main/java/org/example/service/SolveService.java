@@ -0,0 +1,178 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.AllArgsConstructor;
+import org.example.config.SolverProperties;
+import org.example.domain.DTO.AnswerDto;
+import org.example.domain.DTO.BatchRequestDTO;
+import org.example.domain.DTO.CompactAnswerDto;
+import org.example.domain.DTO.ExplainedAnswerDto;
+import org.example.domain.DTO.NodeDTO;
+import org.example.domain.DTO.RankedAnswerDto;
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.DTO.SolveTraceDto;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@AllArgsConstructor
+public class SolveService {
+    private static final TypeReference<List<RequestDTO.Parameter>> CASE_TYPE = new TypeReference<>() {
+    };
+
+    private KnowledgeBaseGraphService knowledgeBaseGraphService;
+    private QuerySolver querySolver;
+    private ObjectMapper objectMapper;
+    private SolverProperties solverProperties;
+    private SolveResultCache solveResultCache;
+    private KnowledgeBaseUsageTracker knowledgeBaseUsageTracker;
+    private SolverMetrics solverMetrics;
+    private SolverExecutor solverExecutor;
+    private CompactAnswerEncoder compactAnswerEncoder;
+    private QuestionRanker questionRanker;
+
+    public List<AnswerDto> solve(RequestDTO request) {
+        KnowledgeBaseGraph graph = getGraph(request.getKbId());
+        return solve(graph, request.getParameters(),
+                request.isHypothesesSetDifferentiationNeeded(), request.isHypothesesSetMinimizationNeeded());
+    }
+
+    public CompactAnswerDto solveCompact(RequestDTO request) {
+        KnowledgeBaseGraph graph = getGraph(request.getKbId());
+        return compactAnswerEncoder.encode(graph, solve(graph, request.getParameters(),
+                request.isHypothesesSetDifferentiationNeeded(), request.isHypothesesSetMinimizationNeeded()));
+    }
+
+    /**
+     * Ответ вместе с {@code limit} лучшими уточняющими вопросами. Вопросы строятся по ответу
+     * и параметрам запроса, поэтому ответ по-прежнему берётся из кэша.
+     */
+    public RankedAnswerDto solveWithQuestions(RequestDTO request, int limit) {
+        KnowledgeBaseGraph graph = getGraph(request.getKbId());
+        List<AnswerDto> answers = solve(graph, request.getParameters(),
+                request.isHypothesesSetDifferentiationNeeded(), request.isHypothesesSetMinimizationNeeded());
+
+        BitSet hypotheses = new BitSet(graph.size());
+        for (AnswerDto answer : answers) {
+            hypotheses.set(graph.indexOf(answer.getId()));
+        }
+        BitSet answered = new BitSet(graph.size());
+        for (RequestDTO.Parameter parameter : request.getParameters()) {
+            if (parameter.getFeatureId() == null) {
+                if (parameter.getAttributeName() != null) {
+                    for (int feature : graph.getAttributeIndex().features(parameter.getAttributeName())) {
+                        answered.set(feature);
+                    }
+                }
+                continue;
+            }
+            int feature = graph.indexOf(parameter.getFeatureId());
+            if (feature >= 0) {
+                answered.set(feature);
+            }
+        }
+        return new RankedAnswerDto(answers, questionRanker.rank(graph, hypotheses, answered, limit));
+    }
+
+    /**
+     * Решение с трассой вывода. Идёт мимо кэша ответов, так как трасса описывает именно это решение.
+     */
+    public ExplainedAnswerDto explain(RequestDTO request) {
+        KnowledgeBaseGraph graph = getGraph(request.getKbId());
+        SolveStatistics statistics = new SolveStatistics();
+        SolveTraceDto trace = new SolveTraceDto();
+        List<AnswerDto> answers = solverExecutor.compute(() -> toAnswers(querySolver.solve(graph, request.getParameters(),
+                request.isHypothesesSetDifferentiationNeeded(), request.isHypothesesSetMinimizationNeeded(),
+                statistics, trace)));
+        solverMetrics.recordSolve(graph.getKbId(), statistics);
+        return new ExplainedAnswerDto(answers, trace);
+    }
+
+    public List<List<AnswerDto>> solveBatch(BatchRequestDTO request) {
+        KnowledgeBaseGraph graph = getGraph(request.getKbId());
+        List<CompletableFuture<List<AnswerDto>>> answers = request.getCases().stream()
+                .map(parameters -> solverExecutor.fork(() -> solve(graph, parameters,
+                        request.isHypothesesSetDifferentiationNeeded(), request.isHypothesesSetMinimizationNeeded())))
+                .toList();
+        return answers.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Решает случаи, записанные в {@code input} в формате NDJSON (по списку параметров на строку),
+     * и пишет ответы в {@code output} в том же порядке, по одной строке на случай.
+     * Одновременно решается не более {@code solver.stream.max-in-flight} случаев:
+     * пока самый старый из них не записан, следующие строки не читаются.
+     */
+    public void solveStream(Long kbId, boolean differentiationNeeded, boolean minimizationNeeded,
+                            InputStream input, OutputStream output) throws IOException {
+        KnowledgeBaseGraph graph = getGraph(kbId);
+        int maxInFlight = solverProperties.getStream().getMaxInFlight();
+        Deque<CompletableFuture<List<AnswerDto>>> inFlight = new ArrayDeque<>(maxInFlight);
+
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonParser cases = objectMapper.createParser(input);
+             JsonGenerator answers = objectMapper.createGenerator(output)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                     .setRootValueSeparator(null)) {
+            while (cases.nextToken() != null) {
+                List<RequestDTO.Parameter> parameters = objectMapper.readValue(cases, CASE_TYPE);
+                inFlight.add(solverExecutor.fork(() ->
+                        solve(graph, parameters, differentiationNeeded, minimizationNeeded)));
+
+                while (!inFlight.isEmpty() && (inFlight.peek().isDone() || inFlight.size() >= maxInFlight)) {
+                    writeNext(inFlight, writer, answers);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writeNext(inFlight, writer, answers);
+            }
+        } finally {
+            inFlight.forEach(answer -> answer.cancel(false));
+        }
+    }
+
+    private void writeNext(Deque<CompletableFuture<List<AnswerDto>>> inFlight, ObjectWriter writer,
+                           JsonGenerator answers) throws IOException {
+        if (!inFlight.peek().isDone()) {
+            // Перед ожиданием отдаём клиенту всё, что уже записано
+            answers.flush();
+        }
+        writer.writeValue(answers, inFlight.poll().join());
+        answers.writeRaw('\n');
+    }
+
+    private KnowledgeBaseGraph getGraph(Long kbId) {
+        knowledgeBaseUsageTracker.record(kbId);
+        return knowledgeBaseGraphService.getGraph(kbId);
+    }
+
+    private List<AnswerDto> solve(KnowledgeBaseGraph graph, List<RequestDTO.Parameter> parameters,
+                                  boolean differentiationNeeded, boolean minimizationNeeded) {
+        return solveResultCache.get(graph, parameters, differentiationNeeded, minimizationNeeded, () -> {
+            SolveStatistics statistics = new SolveStatistics();
+            List<AnswerDto> answers = solverExecutor.compute(() -> toAnswers(
+                    querySolver.solve(graph, parameters, differentiationNeeded, minimizationNeeded, statistics)));
+            solverMetrics.recordSolve(graph.getKbId(), statistics);
+            return answers;
+        });
+    }
+
+    private List<AnswerDto> toAnswers(List<NodeDTO> solutions) {
+        return solutions.stream().map(AnswerDto::fromNodeDTO).toList();
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.graph.KnowledgeBaseGraph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Интерактивная сессия решения: граф, на котором построен вывод, накопленное состояние вывода
+ * и ответы пользователя по признаку или, для наблюдений, по атрибуту.
+ */
+@Getter
+class SolveSession {
+    private final String id;
+    private final Long userId;
+    @Setter
+    private KnowledgeBaseGraph graph;
+    private final boolean differentiationNeeded;
+    private final boolean minimizationNeeded;
+    private final Map<AnswerKey, RequestDTO.Parameter> answers = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // null, если вывод нужно построить заново по всем ответам
+    @Setter
+    private InferenceContext context;
+
+    SolveSession(String id, Long userId, KnowledgeBaseGraph graph,
+                 boolean differentiationNeeded, boolean minimizationNeeded) {
+        this.id = id;
+        this.userId = userId;
+        this.graph = graph;
+        this.differentiationNeeded = differentiationNeeded;
+        this.minimizationNeeded = minimizationNeeded;
+        this.context = new InferenceContext(graph, new SolveStatistics(), null);
+    }
+
+    static AnswerKey keyOf(RequestDTO.Parameter parameter) {
+        return parameter.getFeatureId() != null
+                ? new AnswerKey(parameter.getFeatureId(), null)
+                : new AnswerKey(null, parameter.getAttributeName());
+    }
+
+    record AnswerKey(Long featureId, String attributeName) {
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.config.SolverProperties;
+import org.example.domain.DTO.AnswerDto;
+import org.example.domain.DTO.QuestionDto;
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.DTO.SessionDto;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Интерактивные сессии решения. Состояние вывода хранится между запросами, и каждый новый ответ
+ * распространяется только от признака, к которому он относится. Сокращение множества гипотез
+ * (шаги 4-8) выполняется заново на копии, так как новые признаки могут вернуть исключённые гипотезы.
+ * Вопросы упорядочиваются {@link QuestionRanker}.
+ * Сессия переходит на текущую версию графа базы знаний при следующем запросе, вывод при этом строится заново.
+ * Сессии вытесняются по простою и по суммарному размеру графов; метрики - {@code cache=solver.sessions}.
+ */
+@Service
+public class SolveSessionService {
+    private final KnowledgeBaseGraphService knowledgeBaseGraphService;
+    private final QuerySolver querySolver;
+    private final SolverExecutor solverExecutor;
+    private final QuestionRanker questionRanker;
+    private final int questionLimit;
+    private final Cache<String, SolveSession> sessions;
+
+    public SolveSessionService(KnowledgeBaseGraphService knowledgeBaseGraphService, QuerySolver querySolver,
+                               SolverExecutor solverExecutor, QuestionRanker questionRanker,
+                               SolverProperties solverProperties,
+                               MeterRegistry meterRegistry) {
+        this.knowledgeBaseGraphService = knowledgeBaseGraphService;
+        this.querySolver = querySolver;
+        this.solverExecutor = solverExecutor;
+        this.questionRanker = questionRanker;
+        this.questionLimit = solverProperties.getQuestions().getLimit();
+        SolverProperties.Session properties = solverProperties.getSession();
+        this.sessions = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumWeight())
+                .weigher((String id, SolveSession session) -> Math.max(1, session.getGraph().retainedSize()))
+                .expireAfterAccess(properties.getExpireAfterAccess())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "solver.sessions");
+    }
+
+    public SessionDto start(RequestDTO request) {
+        KnowledgeBaseGraph graph = knowledgeBaseGraphService.getGraph(request.getKbId());
+        SolveSession session = new SolveSession(UUID.randomUUID().toString(), request.getUserId(), graph,
+                request.isHypothesesSetDifferentiationNeeded(), request.isHypothesesSetMinimizationNeeded());
+        SessionDto result = answer(session, request.getParameters());
+        sessions.put(session.getId(), session);
+        return result;
+    }
+
+    /**
+     * Возвращает базу знаний сессии или {@code null}, если сессии нет или она начата другим пользователем.
+     */
+    public Long getKbId(String sessionId, Long userId) {
+        SolveSession session = find(sessionId, userId);
+        return session == null ? null : session.getGraph().getKbId();
+    }
+
+    public SessionDto answer(String sessionId, Long userId, List<RequestDTO.Parameter> parameters) {
+        SolveSession session = find(sessionId, userId);
+        return session == null ? null : answer(session, parameters);
+    }
+
+    public SessionDto get(String sessionId, Long userId) {
+        SolveSession session = find(sessionId, userId);
+        return session == null ? null : answer(session, List.of());
+    }
+
+    public boolean close(String sessionId, Long userId) {
+        if (find(sessionId, userId) == null) {
+            return false;
+        }
+        sessions.invalidate(sessionId);
+        return true;
+    }
+
+    private SolveSession find(String sessionId, Long userId) {
+        SolveSession session = sessions.getIfPresent(sessionId);
+        return session != null && Objects.equals(session.getUserId(), userId) ? session : null;
+    }
+
+    private SessionDto answer(SolveSession session, List<RequestDTO.Parameter> parameters) {
+        session.getLock().lock();
+        try {
+            // Ответы сессии обновляются только после того, как вывод по ним выполнен
+            Map<SolveSession.AnswerKey, RequestDTO.Parameter> answers = new LinkedHashMap<>(session.getAnswers());
+            List<RequestDTO.Parameter> newAnswers = new ArrayList<>();
+            boolean answerChanged = false;
+            for (RequestDTO.Parameter parameter : parameters) {
+                RequestDTO.Parameter previous = answers.put(SolveSession.keyOf(parameter), parameter);
+                if (previous == null) {
+                    newAnswers.add(parameter);
+                } else if (!Objects.equals(previous.getAttributeValue(), parameter.getAttributeValue())) {
+                    answerChanged = true;
+                }
+            }
+            // Сессия переходит на текущую версию графа, чтобы не удерживать устаревшие графы в памяти
+            KnowledgeBaseGraph graph = knowledgeBaseGraphService.getGraph(session.getGraph().getKbId());
+            boolean graphChanged = graph != session.getGraph();
+            boolean restart = answerChanged || graphChanged || session.getContext() == null;
+
+            SessionDto result;
+            try {
+                result = solverExecutor.compute(() -> {
+                    if (restart) {
+                        // Изменённый ответ может снять активацию, а вывод только добавляет её, поэтому он строится заново
+                        session.setContext(new InferenceContext(graph, new SolveStatistics(), null));
+                        querySolver.propagate(session.getContext(), List.copyOf(answers.values()));
+                    } else if (!newAnswers.isEmpty()) {
+                        querySolver.propagate(session.getContext(), newAnswers);
+                    }
+                    return toSessionDto(session);
+                });
+            } catch (RuntimeException e) {
+                // Вывод мог быть прерван на середине: при следующем ответе он строится заново по прежним ответам
+                session.setContext(null);
+                throw e;
+            }
+            session.getAnswers().clear();
+            session.getAnswers().putAll(answers);
+            if (graphChanged) {
+                session.setGraph(graph);
+                // Вес сессии пересчитывается по новому графу
+                sessions.asMap().replace(session.getId(), session, session);
+            }
+            return result;
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    private SessionDto toSessionDto(SolveSession session) {
+        InferenceContext reduced = session.getContext().copyForReduction();
+        KnowledgeBaseGraph graph = reduced.getGraph();
+        List<AnswerDto> answers = querySolver.reduce(reduced,
+                        session.isDifferentiationNeeded(), session.isMinimizationNeeded())
+                .stream().map(AnswerDto::fromNodeDTO).toList();
+
+        BitSet answered = (BitSet) reduced.getActivatedFeatures().clone();
+        answered.or(reduced.getInactiveFeatures());
+        List<QuestionDto> questions = questionRanker.rank(graph, reduced.getSolutions(), answered, questionLimit);
+        return new SessionDto(session.getId(), answers, questions);
+    }
+}
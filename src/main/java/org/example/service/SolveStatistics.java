@@ -0,0 +1,71 @@
+package org.example.service;
+
+import lombok.Getter;
+
+/**
+ * Счётчики и длительности шагов одного решения. Заполняются решателем,
+ * публикуются в метрики {@link SolverMetrics}.
+ */
+@Getter
+public class SolveStatistics {
+    public enum Step {
+        ACTIVATE_FEATURES("activate-features"),
+        GENERATE_HYPOTHESES("generate-hypotheses"),
+        EXPAND_ARGUMENTS("expand-arguments"),
+        REJECTING_ARGUMENTS("rejecting-arguments"),
+        MISSING_ARGUMENTS("missing-arguments"),
+        DIFFERENTIATION("differentiation"),
+        MINIMIZATION("minimization");
+
+        @Getter
+        private final String tag;
+
+        Step(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final long[] stepNanos = new long[Step.values().length];
+    private long totalNanos;
+    private long nodesVisited;
+    private long edgesTraversed;
+    private long argumentIterations;
+    private long hypothesesActivated;
+    private long hypothesesRemoved;
+
+    /**
+     * Засчитывает шаг, начавшийся в {@code started}, и возвращает момент его окончания.
+     */
+    long recordStep(Step step, long started) {
+        long finished = System.nanoTime();
+        stepNanos[step.ordinal()] += finished - started;
+        totalNanos += finished - started;
+        return finished;
+    }
+
+    void merge(SolveStatistics other) {
+        nodesVisited += other.nodesVisited;
+        edgesTraversed += other.edgesTraversed;
+        argumentIterations += other.argumentIterations;
+    }
+
+    void nodeVisited() {
+        nodesVisited++;
+    }
+
+    void edgesTraversed(int count) {
+        edgesTraversed += count;
+    }
+
+    void argumentIteration() {
+        argumentIterations++;
+    }
+
+    void hypothesesActivated(int count) {
+        hypothesesActivated += count;
+    }
+
+    void hypothesesRemoved(int count) {
+        hypothesesRemoved += count;
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.config.SolverProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Потоки для решения. Сам вывод выполняется в пуле фиксированного размера (по умолчанию по числу ядер),
+ * так что одновременные запросы не делят процессор на большее число потоков, чем ядер.
+ * Ожидание и раздача случаев пакета выполняются в виртуальных потоках.
+ * Параллельные части одного решения выполняются в том же пуле: вызывающий поток сам выполняет части,
+ * которые ещё не взяли свободные потоки пула, поэтому решений и их частей вместе не больше, чем потоков пула.
+ * Если очередь пула заполнена, вызывающий поток ждёт освобождения места.
+ * Блокирующие вычисления значений кэшей также выполняются в виртуальных потоках, а не внутри
+ * {@code compute} кэша: там виртуальный поток удерживает блокировку монитора и закрепляет поток-носитель.
+ */
+@Component
+public class SolverExecutor {
+    private final ThreadPoolExecutor solverPool;
+    private final Semaphore capacity;
+    private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SolverExecutor(SolverProperties solverProperties) {
+        SolverProperties.Executor properties = solverProperties.getExecutor();
+        int threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        ThreadFactory threadFactory = Thread.ofPlatform().name("solver-", 0).daemon(true).factory();
+        this.solverPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        this.capacity = new Semaphore(threads + properties.getQueueCapacity());
+    }
+
+    /**
+     * Выполняет вычисление в пуле решателя и ждёт результата.
+     */
+    public <T> T compute(Supplier<T> computation) {
+        capacity.acquireUninterruptibly();
+        try {
+            return join(CompletableFuture.supplyAsync(computation, solverPool));
+        } finally {
+            capacity.release();
+        }
+    }
+
+    /**
+     * Выполняет части одного решения и ждёт их завершения. Части предлагаются свободным потокам пула,
+     * остальные выполняет вызывающий поток; {@link FutureTask} выполняется не более одного раза.
+     */
+    public void forkJoin(List<Runnable> tasks) {
+        List<FutureTask<Void>> parts = tasks.stream().map(task -> new FutureTask<Void>(task, null)).toList();
+        parts.stream().skip(1).forEach(solverPool::execute);
+        parts.forEach(FutureTask::run);
+        parts.forEach(SolverExecutor::await);
+    }
+
+    public int parallelism() {
+        return solverPool.getMaximumPoolSize();
+    }
+
+    private static void await(FutureTask<Void> part) {
+        try {
+            part.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a solver part", e);
+        }
+    }
+
+    /**
+     * Ждёт результата; исключение вычисления пробрасывается как есть, без {@link CompletionException}.
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Запускает задачу в отдельном виртуальном потоке; вычисления внутри неё должны идти через {@link #compute}.
+     */
+    public <T> CompletableFuture<T> fork(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, virtualThreads);
+    }
+
+    /**
+     * Исполнитель для блокирующих задач вне пула решателя: загрузки графов, запросов к базе данных
+     * и ожидания {@link #compute}.
+     */
+    public Executor blockingExecutor() {
+        return virtualThreads;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        solverPool.shutdownNow();
+        virtualThreads.shutdownNow();
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики решателя и загрузки графов с тегом {@code kb}:
+ * {@code solver.solve} и {@code solver.step} (тег {@code step}) - длительности решения и его шагов,
+ * {@code solver.nodes.visited}, {@code solver.edges.traversed}, {@code solver.argument.iterations},
+ * {@code solver.hypotheses.activated}, {@code solver.hypotheses.removed} - объём работы,
+ * {@code solver.graph.load} (тег {@code source}) - загрузка графа,
+ * {@code solver.graph.nodes} и {@code solver.graph.edges} - размер последнего загруженного графа.
+ */
+@Component
+public class SolverMetrics {
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Long, KnowledgeBaseMeters> meters = new ConcurrentHashMap<>();
+
+    public SolverMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordSolve(Long kbId, SolveStatistics statistics) {
+        KnowledgeBaseMeters kbMeters = metersOf(kbId);
+        kbMeters.solve.record(statistics.getTotalNanos(), TimeUnit.NANOSECONDS);
+        for (SolveStatistics.Step step : SolveStatistics.Step.values()) {
+            long nanos = statistics.getStepNanos()[step.ordinal()];
+            if (nanos > 0) {
+                kbMeters.steps[step.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        kbMeters.nodesVisited.increment(statistics.getNodesVisited());
+        kbMeters.edgesTraversed.increment(statistics.getEdgesTraversed());
+        kbMeters.argumentIterations.increment(statistics.getArgumentIterations());
+        kbMeters.hypothesesActivated.increment(statistics.getHypothesesActivated());
+        kbMeters.hypothesesRemoved.increment(statistics.getHypothesesRemoved());
+    }
+
+    public void recordGraphLoad(KnowledgeBaseGraph graph, String source, long nanos) {
+        KnowledgeBaseMeters kbMeters = metersOf(graph.getKbId());
+        Timer.builder("solver.graph.load")
+                .tag("kb", graph.getKbId().toString())
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        kbMeters.graphNodes.set(graph.size());
+        kbMeters.graphEdges.set(graph.getOutgoing().edgeCount());
+    }
+
+    private KnowledgeBaseMeters metersOf(Long kbId) {
+        return meters.computeIfAbsent(kbId, id -> new KnowledgeBaseMeters(meterRegistry, id.toString()));
+    }
+
+    private static final class KnowledgeBaseMeters {
+        private final Timer solve;
+        private final Timer[] steps;
+        private final Counter nodesVisited;
+        private final Counter edgesTraversed;
+        private final Counter argumentIterations;
+        private final Counter hypothesesActivated;
+        private final Counter hypothesesRemoved;
+        private final AtomicLong graphNodes = new AtomicLong();
+        private final AtomicLong graphEdges = new AtomicLong();
+
+        private KnowledgeBaseMeters(MeterRegistry registry, String kb) {
+            this.solve = Timer.builder("solver.solve").tag("kb", kb).register(registry);
+            this.steps = new Timer[SolveStatistics.Step.values().length];
+            for (SolveStatistics.Step step : SolveStatistics.Step.values()) {
+                steps[step.ordinal()] = Timer.builder("solver.step").tag("kb", kb).tag("step", step.getTag()).register(registry);
+            }
+            this.nodesVisited = Counter.builder("solver.nodes.visited").tag("kb", kb).register(registry);
+            this.edgesTraversed = Counter.builder("solver.edges.traversed").tag("kb", kb).register(registry);
+            this.argumentIterations = Counter.builder("solver.argument.iterations").tag("kb", kb).register(registry);
+            this.hypothesesActivated = Counter.builder("solver.hypotheses.activated").tag("kb", kb).register(registry);
+            this.hypothesesRemoved = Counter.builder("solver.hypotheses.removed").tag("kb", kb).register(registry);
+            Gauge.builder("solver.graph.nodes", graphNodes, AtomicLong::get).tag("kb", kb).register(registry);
+            Gauge.builder("solver.graph.edges", graphEdges, AtomicLong::get).tag("kb", kb).register(registry);
+        }
+    }
+}
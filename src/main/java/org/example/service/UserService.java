@@ -26,7 +26,7 @@ public class UserService {
         userDTO.setUsername(user.getUsername());
         HashMap<Long, AccessLevel> availableKb = new HashMap<>();
         user.getAvailableKb()
-                .forEach(UserKbAccess -> availableKb.put(UserKbAccess.getId().getUserId(), UserKbAccess.getAccessLevel()));
+                .forEach(UserKbAccess -> availableKb.put(UserKbAccess.getId().getKbId(), UserKbAccess.getAccessLevel()));
         userDTO.setAvailableKb(availableKb);
         return userDTO;
     }
@@ -0,0 +1,102 @@
+package org.example.domain.graph;
+
+import org.example.domain.DTO.NodeDTO;
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.types.ConnectionType;
+import org.example.domain.types.NodeType;
+import org.example.service.InferenceContext;
+import org.example.service.QuerySolver;
+import org.example.service.SolveStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнивает решения по исходному графу и по графу после {@link GraphOptimizer} на случайных графах,
+ * в том числе с циклами и петлями через вспомогательные узлы, а также с признаками без условия активации.
+ */
+class GraphOptimizerTest {
+    private static final int RUNS = 2000;
+    private static final int REQUESTS = 10;
+
+    private final QuerySolver querySolver = new QuerySolver();
+
+    @Test
+    void optimizedGraphSolvesLikeOriginal() {
+        Random random = new Random(7);
+        for (int run = 0; run < RUNS; run++) {
+            KnowledgeBaseGraph graph = randomGraph(random);
+            GraphOptimizer.Result result = GraphOptimizer.optimize(graph);
+            KnowledgeBaseGraph optimized = result.graph();
+            String message = "run " + run + ", " + result.report();
+            // Изменения применяются к исходному графу
+            assertEquals(graph.size(), optimized.toBuilder().build().size(), message);
+
+            int featureCount = graph.featureCount();
+            for (int request = 0; request < REQUESTS; request++) {
+                List<RequestDTO.Parameter> parameters = new ArrayList<>();
+                for (int feature = 0; feature < featureCount; feature++) {
+                    if (random.nextInt(3) > 0) {
+                        parameters.add(new RequestDTO.Parameter((long) feature + 1, String.valueOf(random.nextInt(12)), null));
+                    }
+                }
+                boolean differentiationNeeded = random.nextBoolean();
+                boolean minimizationNeeded = random.nextBoolean();
+
+                assertEquals(render(querySolver.solve(graph, parameters, differentiationNeeded, minimizationNeeded)),
+                        render(querySolver.solve(optimized, parameters, differentiationNeeded, minimizationNeeded)), message);
+                assertEquals(possibleArguments(graph, parameters), possibleArguments(optimized, parameters), message);
+            }
+        }
+    }
+
+    private static KnowledgeBaseGraph randomGraph(Random random) {
+        int featureCount = 2 + random.nextInt(8);
+        int auxiliaryCount = random.nextInt(15);
+        int size = featureCount + auxiliaryCount + 1 + random.nextInt(6);
+        KnowledgeBaseGraph.Builder builder = KnowledgeBaseGraph.builder(1L);
+        for (int node = 0; node < size; node++) {
+            long id = node + 1;
+            if (node < featureCount) {
+                String condition = random.nextInt(8) == 0 ? null : random.nextBoolean() ? "0:10" : "[1,2,3]";
+                builder.addNode(id, "n" + node, NodeType.FEATURE, "attr" + node % 2, "", condition);
+            } else if (node < featureCount + auxiliaryCount) {
+                builder.addNode(id, "n" + node, random.nextBoolean() ? NodeType.AND : NodeType.OR);
+            } else {
+                builder.addNode(id, "n" + node, NodeType.HYPOTHESIS);
+            }
+        }
+        int connectionCount = random.nextInt(size * 3);
+        for (int connection = 0; connection < connectionCount; connection++) {
+            builder.addConnection((long) random.nextInt(size) + 1, (long) random.nextInt(size) + 1,
+                    ConnectionType.values()[random.nextInt(ConnectionType.values().length)]);
+        }
+        return builder.build();
+    }
+
+    private Set<Long> possibleArguments(KnowledgeBaseGraph graph, List<RequestDTO.Parameter> parameters) {
+        InferenceContext context = new InferenceContext(graph, new SolveStatistics(), null);
+        querySolver.propagate(context, parameters);
+        Set<Long> ids = new TreeSet<>();
+        context.getPossibleArguments().stream().forEach(node -> ids.add(graph.getId(node)));
+        return ids;
+    }
+
+    private static String render(List<NodeDTO> solutions) {
+        Map<Long, TreeSet<Long>> rendered = new TreeMap<>();
+        for (NodeDTO solution : solutions) {
+            TreeSet<Long> arguments = new TreeSet<>();
+            solution.getArguments().forEach(argument -> arguments.add(argument.getId()));
+            rendered.put(solution.getId(), arguments);
+        }
+        return rendered.toString();
+    }
+}
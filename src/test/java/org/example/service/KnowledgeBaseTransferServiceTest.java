@@ -0,0 +1,71 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.SolverProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Загрузка базы знаний с ошибкой разбора в последней строке не оставляет записанных пакетов.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "solver.transfer.batch-size=1")
+class KnowledgeBaseTransferServiceTest {
+    private static final String RECORDS = """
+            {"type":"knowledgeBase","name":"imported","description":"test"}
+            {"type":"attribute","id":1,"name":"age","attributeType":"RANGE","valueArea":"0:120"}
+            {"type":"section","id":1,"name":"main"}
+            {"type":"node","id":1,"name":"young","section":1,"nodeType":"FEATURE"}
+            {"type":"node","id":2,"name":"h","section":1,"nodeType":"HYPOTHESIS"}
+            {"type":"nodeAttribute","node":1,"attribute":1,"activationCondition":"0:30"}
+            {"type":"connection","source":1,"target":2,"connectionType":"RS"}
+            {"type":"connection","source":1,
+            """;
+
+    @Autowired
+    private KnowledgeBaseTransferService knowledgeBaseTransferService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void importWithBrokenLastLineLeavesNothing() {
+        jdbcTemplate.update("insert into users (id, username) values (1, 'alice')");
+
+        assertThrows(JsonProcessingException.class, () -> knowledgeBaseTransferService.importKnowledgeBase(1L,
+                new ByteArrayInputStream(RECORDS.getBytes(StandardCharsets.UTF_8))));
+
+        for (String table : new String[]{"knowledge_bases", "sections", "nodes", "attributes", "node_attributes",
+                "node_connections", "user_kb_access"}) {
+            assertEquals(0, jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class), table);
+        }
+    }
+
+    @Configuration
+    @AutoConfigurationPackage(basePackages = "org.example.domain.entitiy")
+    @EnableConfigurationProperties(SolverProperties.class)
+    @Import(KnowledgeBaseTransferService.class)
+    static class Config {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+}
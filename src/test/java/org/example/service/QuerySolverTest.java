@@ -0,0 +1,208 @@
+package org.example.service;
+
+import org.example.config.SolverProperties;
+import org.example.domain.DTO.NodeDTO;
+import org.example.domain.DTO.RequestDTO;
+import org.example.domain.graph.KnowledgeBaseGraph;
+import org.example.domain.types.ConnectionType;
+import org.example.domain.types.NodeType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнивает {@link QuerySolver} с {@link ReferenceQuerySolver} на случайных базах знаний:
+ * последовательный вывод, параллельный по компонентам и продолжение вывода порциями параметров.
+ * Эталон рекурсивно обходит вспомогательные узлы и на их цикле не завершается, поэтому графы строятся
+ * без циклов из вспомогательных узлов; циклы проверяет {@code GraphOptimizerTest}.
+ */
+class QuerySolverTest {
+    private static final int RUNS = 2000;
+    private static final String[] CONDITIONS = {"1:5", "[1,3,7]", "yes"};
+    private static final String[] VALUES = {"1", "3", "6", "7", "yes", "no", "x"};
+
+    private static SolverExecutor solverExecutor;
+    private static QuerySolver parallelSolver;
+    private final QuerySolver querySolver = new QuerySolver();
+
+    @BeforeAll
+    static void createParallelSolver() {
+        SolverProperties solverProperties = new SolverProperties();
+        solverProperties.getParallel().setMinNodes(0);
+        solverExecutor = new SolverExecutor(solverProperties);
+        parallelSolver = new QuerySolver(solverProperties, solverExecutor);
+    }
+
+    @AfterAll
+    static void shutdownParallelSolver() {
+        solverExecutor.shutdown();
+    }
+
+    @Test
+    void solvesLikeReferenceSolver() {
+        for (int run = 0; run < RUNS; run++) {
+            RandomKnowledgeBase knowledgeBase = new RandomKnowledgeBase(new Random(run));
+            Random random = new Random(run);
+            boolean differentiationNeeded = random.nextBoolean();
+            boolean minimizationNeeded = random.nextBoolean();
+            List<RequestDTO.Parameter> parameters = knowledgeBase.parameters(random);
+            RequestDTO request = new RequestDTO(1L, 1L, parameters, differentiationNeeded, minimizationNeeded, false);
+
+            String expected = render(new ReferenceQuerySolver().solve(request, knowledgeBase.nodes()));
+            KnowledgeBaseGraph graph = knowledgeBase.graph();
+            String message = "run " + run;
+            assertEquals(expected, render(querySolver.solve(request, graph)), message);
+            assertEquals(expected, render(parallelSolver.solve(request, graph)), message + ", parallel");
+
+            InferenceContext context = new InferenceContext(graph, new SolveStatistics(), null);
+            for (int from = 0; from < parameters.size(); ) {
+                int to = Math.min(parameters.size(), from + 1 + random.nextInt(3));
+                querySolver.propagate(context, parameters.subList(from, to));
+                querySolver.reduce(context.copyForReduction(), true, true);
+                from = to;
+            }
+            assertEquals(expected, render(querySolver.reduce(context.copyForReduction(),
+                    differentiationNeeded, minimizationNeeded)), message + ", incremental");
+        }
+    }
+
+    // Решения и их аргументы по идентификаторам, независимо от порядка
+    static String render(List<NodeDTO> solutions) {
+        Map<Long, TreeSet<Long>> rendered = new TreeMap<>();
+        for (NodeDTO solution : solutions) {
+            TreeSet<Long> arguments = new TreeSet<>();
+            solution.getArguments().forEach(argument -> arguments.add(argument.getId()));
+            rendered.put(solution.getId(), arguments);
+        }
+        return rendered.toString();
+    }
+
+    private static class RandomKnowledgeBase {
+        private final int featureCount;
+        private final NodeType[] types;
+        private final String[] conditions;
+        private final Map<Long, long[]> connections = new LinkedHashMap<>();
+
+        RandomKnowledgeBase(Random random) {
+            featureCount = 3 + random.nextInt(12);
+            int auxiliaryCount = random.nextInt(8);
+            int size = featureCount + auxiliaryCount + 1 + random.nextInt(8);
+            types = new NodeType[size];
+            conditions = new String[size];
+            for (int node = 0; node < size; node++) {
+                if (node < featureCount) {
+                    types[node] = NodeType.FEATURE;
+                    conditions[node] = CONDITIONS[random.nextInt(CONDITIONS.length)];
+                } else if (node < featureCount + auxiliaryCount) {
+                    types[node] = random.nextBoolean() ? NodeType.AND : NodeType.OR;
+                } else {
+                    types[node] = NodeType.HYPOTHESIS;
+                }
+            }
+
+            // Случайный порядок вспомогательных узлов: связи между ними идут по нему в обе стороны
+            // относительно номеров, но не замыкаются в цикл
+            List<Integer> order = new ArrayList<>();
+            for (int node = 0; node < size; node++) {
+                order.add(node);
+            }
+            Collections.shuffle(order, random);
+            int[] rank = new int[size];
+            for (int position = 0; position < size; position++) {
+                rank[order.get(position)] = position;
+            }
+
+            int attempts = random.nextInt(4 * size);
+            for (int attempt = 0; attempt < attempts; attempt++) {
+                int source = random.nextInt(size);
+                int target = random.nextInt(size);
+                // Гипотеза может вести во вспомогательный узел: эталон не продолжает обход от гипотез,
+                // поэтому цикл через гипотезу его не зацикливает, в отличие от цикла из вспомогательных узлов
+                boolean sameKind = types[source] == types[target]
+                        && (types[source] == NodeType.FEATURE || types[source] == NodeType.HYPOTHESIS);
+                boolean cyclic = isAuxiliary(types[source]) && isAuxiliary(types[target]) && rank[target] < rank[source];
+                if (source == target || sameKind || cyclic) {
+                    continue;
+                }
+                ConnectionType connectionType = ConnectionType.values()[random.nextInt(ConnectionType.values().length)];
+                connections.put((long) source * size + target, new long[]{source, target, connectionType.ordinal()});
+            }
+        }
+
+        List<RequestDTO.Parameter> parameters(Random random) {
+            List<RequestDTO.Parameter> parameters = new ArrayList<>();
+            for (int feature = 0; feature < featureCount; feature++) {
+                if (random.nextInt(3) > 0) {
+                    parameters.add(new RequestDTO.Parameter(idOf(feature), VALUES[random.nextInt(VALUES.length)], null));
+                }
+            }
+            return parameters;
+        }
+
+        List<NodeDTO> nodes() {
+            List<NodeDTO> nodes = new ArrayList<>(types.length);
+            for (int node = 0; node < types.length; node++) {
+                NodeDTO nodeDTO = new NodeDTO();
+                nodeDTO.setId(idOf(node));
+                nodeDTO.setName("n" + node);
+                nodeDTO.setNodeType(types[node]);
+                nodeDTO.setOutgoingConnections(new HashMap<>());
+                nodeDTO.setIncomingConnections(new HashMap<>());
+                nodeDTO.setArguments(new HashSet<>());
+                if (conditions[node] != null) {
+                    nodeDTO.setAttribute(new NodeDTO.AttributeDto(attributeOf(node), "", conditions[node]));
+                }
+                nodes.add(nodeDTO);
+            }
+            for (long[] connection : connections.values()) {
+                NodeDTO source = nodes.get((int) connection[0]);
+                NodeDTO target = nodes.get((int) connection[1]);
+                ConnectionType connectionType = ConnectionType.values()[(int) connection[2]];
+                source.getOutgoingConnections().put(target, connectionType);
+                target.getIncomingConnections().put(source, connectionType);
+            }
+            return nodes;
+        }
+
+        KnowledgeBaseGraph graph() {
+            KnowledgeBaseGraph.Builder builder = KnowledgeBaseGraph.builder(1L);
+            for (int node = 0; node < types.length; node++) {
+                if (conditions[node] != null) {
+                    builder.addNode(idOf(node), "n" + node, types[node], attributeOf(node), "", conditions[node]);
+                } else {
+                    builder.addNode(idOf(node), "n" + node, types[node]);
+                }
+            }
+            for (long[] connection : connections.values()) {
+                builder.addConnection(idOf((int) connection[0]), idOf((int) connection[1]),
+                        ConnectionType.values()[(int) connection[2]]);
+            }
+            return builder.build();
+        }
+
+        private static boolean isAuxiliary(NodeType type) {
+            return type == NodeType.AND || type == NodeType.OR;
+        }
+
+        private static Long idOf(int node) {
+            return (long) node + 1;
+        }
+
+        private static String attributeOf(int node) {
+            return "attr" + node % 3;
+        }
+    }
+}